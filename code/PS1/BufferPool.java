@@ -0,0 +1,183 @@
+/**
+ * BufferPool
+ * Recycles BufferedImages between webcam frames, so that the recolored image and the visited image of every frame
+ * don't each cost a fresh full-frame allocation. Images are kept by width, height and type; acquire() hands back a
+ * released image of the right kind when there is one, and only allocates when there isn't.
+ *
+ * Counts how many images (and bytes) were allocated versus reused, and can read how many bytes the current thread
+ * has allocated in total, to see what the pool saves.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.image.*;
+import java.lang.management.*;
+import java.util.*;
+
+public class BufferPool {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final int maxPerKey;                            // how many free images of one kind to hold on to
+    private final HashMap<Long, ArrayDeque<BufferedImage>> free;   // released images, by kind
+
+    private long allocations, reuses;                       // images handed out that were new / recycled
+    private long allocatedBytes, reusedBytes;               // their sizes
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public BufferPool() {
+        this(4);
+    }
+
+    public BufferPool(int maxPerKey) {
+        this.maxPerKey = maxPerKey;
+        this.free = new HashMap<Long, ArrayDeque<BufferedImage>>();
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    public synchronized long getAllocations() {
+        return allocations;
+    }
+
+    public synchronized long getReuses() {
+        return reuses;
+    }
+
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public synchronized long getReusedBytes() {
+        return reusedBytes;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Returns an image of the given size and type (not cleared), recycled if possible */
+    public synchronized BufferedImage acquire(int width, int height, int type) {
+        ArrayDeque<BufferedImage> images = free.get(key(width, height, type));
+        if(images != null && !images.isEmpty()) {
+            BufferedImage image = images.pop();
+            reuses++;
+            reusedBytes += bytes(image);
+            return image;
+        }
+        BufferedImage image = new BufferedImage(width, height, type);
+        allocations++;
+        allocatedBytes += bytes(image);
+        return image;
+    }
+
+    /** Returns an all-zero image of the given size and type, recycled if possible */
+    public BufferedImage acquireCleared(int width, int height, int type) {
+        BufferedImage image = acquire(width, height, type);
+        clear(image);
+        return image;
+    }
+
+    /**
+     * Returns a copy of the image, in a recycled image if possible. Images of a custom type can't be pooled
+     * (there is no type to make another one from), so they are copied into a new image as before, except for
+     * off-heap BGR frames (DirectDataBuffer), which are copied a row at a time into a pooled TYPE_3BYTE_BGR image.
+     */
+    public BufferedImage copyOf(BufferedImage source) {
+        DirectDataBuffer offHeap = DirectDataBuffer.of(source);
+        if(offHeap != null) {
+            BufferedImage copy = acquire(source.getWidth(), source.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
+            offHeap.copyTo(copy);
+            return copy;
+        }
+        if(source.getType() == BufferedImage.TYPE_CUSTOM) {
+            BufferedImage copy = new BufferedImage(source.getColorModel(), source.copyData(null), source.getColorModel().isAlphaPremultiplied(), null);
+            synchronized(this) {
+                allocations++;
+                allocatedBytes += bytes(copy);
+            }
+            return copy;
+        }
+        BufferedImage copy = acquire(source.getWidth(), source.getHeight(), source.getType());
+        copy.getRaster().setRect(source.getRaster());
+        return copy;
+    }
+
+    /** Gives an image back to the pool; it must not be used by the caller afterwards */
+    public synchronized void release(BufferedImage image) {
+        if(image == null || image.getType() == BufferedImage.TYPE_CUSTOM) return;
+        Long key = key(image.getWidth(), image.getHeight(), image.getType());
+        ArrayDeque<BufferedImage> images = free.get(key);
+        if(images == null) {
+            images = new ArrayDeque<BufferedImage>();
+            free.put(key, images);
+        }
+        if(images.size() < maxPerKey) { // otherwise let it be garbage collected
+            images.push(image);
+        }
+    }
+
+    /** Forgets all of the free images and zeroes the counters */
+    public synchronized void reset() {
+        free.clear();
+        allocations = reuses = allocatedBytes = reusedBytes = 0;
+    }
+
+    /** Helper Method: one number for each combination of size and type */
+    private static long key(int width, int height, int type) {
+        return ((long) width << 40) | ((long) height << 16) | type;
+    }
+
+    /** Helper Method: how many bytes of pixel data the image holds */
+    private static long bytes(BufferedImage image) {
+        DataBuffer data = image.getRaster().getDataBuffer();
+        return (long) data.getSize() * data.getNumBanks() * DataBuffer.getDataTypeSize(data.getDataType()) / 8;
+    }
+
+    /**
+     * Sets every pixel of the image to zero, a row at a time through the raster (not by taking its data array, which
+     * would stop Java2D from accelerating the image if it goes on to be drawn)
+     */
+    public static void clear(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        Object row = raster.getDataElements(0, 0, raster.getWidth(), 1, null); // an array of the raster's transfer type
+        if(row instanceof int[]) Arrays.fill((int[]) row, 0);
+        else if(row instanceof byte[]) Arrays.fill((byte[]) row, (byte) 0);
+        else if(row instanceof short[]) Arrays.fill((short[]) row, (short) 0);
+        else if(row instanceof float[]) Arrays.fill((float[]) row, 0);
+        else if(row instanceof double[]) Arrays.fill((double[]) row, 0);
+        for(int y = 0; y < raster.getHeight(); y++) {
+            raster.setDataElements(0, y, raster.getWidth(), 1, row);
+        }
+    }
+
+    /**
+     * Total bytes the current thread has allocated so far (on JVMs that can tell, otherwise -1),
+     * for measuring allocation rates around a piece of code
+     */
+    public static long threadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("buffer pool: %d allocated (%.1f MB), %d reused (%.1f MB)",
+                allocations, allocatedBytes / 1e6, reuses, reusedBytes / 1e6);
+    }
+}
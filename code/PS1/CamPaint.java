@@ -32,7 +32,16 @@ public class CamPaint extends Webcam {
     private Color targetColor;          	// color of regions of interest (set by mouse press)
     private Color paintColor = Color.blue;	// the color to put into the painting from the "brush"
     private BufferedImage painting;			// the resulting masterpiece
+    private StrokeHistory history;          // every frame's brush region, painted onto painting as it comes in
     private boolean paintMode = false;
+    private boolean tracking = false;       // follow the brush from frame to frame instead of searching every whole frame
+    private ColorHistogram histogram = new ColorHistogram(Runtime.getRuntime().availableProcessors() > 1); // picks the target from a click
+    private PixelReader reader = new PixelReader();     // the frame's pixels, for the histogram
+    private boolean following = false;      // let the target color drift with the brush's color (e.g. as lighting changes)
+    private static final int clickRadius = 7;           // how far around a click the histogram looks for the dominant color
+    private long frames = 0;                // frames processed, for the allocation rate
+    private long allocatedBytes = 0;        // bytes allocated by processImage, in total
+    private static final Metrics.Histogram paintTime = Metrics.histogram("paint");   // adding the stroke and compositing the painting
 
 
     /**
@@ -43,7 +52,10 @@ public class CamPaint extends Webcam {
     /** Initializes the region finder and the drawing */
     public CamPaint() {
         finder = new RegionFinder();
+        history = new StrokeHistory();
+        finder.setHistory(history);
         clearPainting();
+        setDirtyTracking(true); // the painting view only changes where the new stroke goes
     }
 
 
@@ -55,6 +67,7 @@ public class CamPaint extends Webcam {
     /** Resets the painting to a blank image */
     protected void clearPainting() {
         painting = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        markAllDirty();
     }
 
     /**
@@ -64,7 +77,7 @@ public class CamPaint extends Webcam {
     @Override
     public void draw(Graphics g) {
         if(displayMode == 'w') { // shows webcam
-            g.drawImage(image, 0, 0, null);
+            g.drawImage(displayed, 0, 0, null);
         } else if(displayMode == 'r') { // shows recolored image
             g.drawImage(finder.getRecoloredImage(), 0, 0, null);
         } else if(displayMode == 'p') { // shows painting
@@ -75,17 +88,74 @@ public class CamPaint extends Webcam {
     /** Webcam method, here finding regions and updating the painting */
     @Override
     public void processImage() {
+        long allocatedBefore = BufferPool.threadAllocatedBytes();
+        processFrame();
+        frames++;
+        allocatedBytes += BufferPool.threadAllocatedBytes() - allocatedBefore;
+    }
+
+    /** Helper Method: finds regions in the new frame and updates the painting */
+    private void processFrame() {
         finder.setImage(image); // set region finder image to new frame in webcam
         finder.recolorImage(paintColor); // recolor the recoloredImage
-        finder.recolorImage(paintColor, finder.getLargestRegions(), finder.getRecoloredImage()); // draw in the largestRegions (paint)
         if(paintMode) { // if painting is enabled
             finder.clearRegions(); // clear all regions (avoids unnecessary redrawing)
-            finder.findRegions(targetColor); // find the regions of the appropriate color and set regions to current paintColor
-            finder.largestRegion(); // add this frames largest region to the list of largest regions
+            if(tracking) {
+                finder.trackRegion(targetColor); // find just the brush, starting from where it was in the last frame
+            } else {
+                finder.findRegions(targetColor); // find the regions of the appropriate color and set regions to current paintColor
+            }
+            if(finder.isStatsOnly()) { // no pixels were kept, so the stroke is the brush's ellipse
+                RegionStats brush = finder.largestRegionStats();
+                if(brush != null) {
+                    history.add(SpanRegion.ellipse(brush, image.getWidth(), image.getHeight()));
+                    if(following) {
+                        followTarget(brush.getCentroidX(), brush.getCentroidY(), brush.getSize());
+                    }
+                }
+            } else {
+                ArrayList<Point> brush = finder.largestRegion(); // add this frames largest region to the stroke history
+                if(following && brush != null) {
+                    followTarget(brush);
+                }
+            }
 
             finder.recolorImage(paintColor); // recolor the recoloredImage to the updated frame
-            finder.recolorImage(paintColor, finder.getLargestRegions(), finder.getRecoloredImage());
-            finder.recolorImage(paintColor, finder.getLargestRegions(), painting); // draw the largestRegions (paint) on the painting
+        }
+        long start = Metrics.start();
+        Rectangle stroke = history.getNewBounds(); // what paintNew is about to change (it resets the bounds)
+        if(paintMode) {
+            history.paintNew(painting, paintColor); // only this frame's stroke is new to the painting
+        }
+        Graphics2D g = finder.getRecoloredImage().createGraphics(); // draw the painting (all the strokes so far) over the recolored image
+        g.drawImage(painting, 0, 0, null);
+        g.dispose();
+        // Marked only once the pixels are there, so a paint in between can't clear the mark and keep the old pixels
+        if(displayMode == 'p') { // only the new stroke changes what is shown
+            markDirty(stroke);
+        } else { // the whole frame is new
+            markAllDirty();
+        }
+        Metrics.stop(paintTime, start);
+    }
+
+    /** Helper Method: moves the target color to the dominant color next to it around the brush's centroid */
+    private void followTarget(ArrayList<Point> brush) {
+        long sumX = 0, sumY = 0;
+        for(Point p : brush) {
+            sumX += p.x;
+            sumY += p.y;
+        }
+        followTarget((double) sumX / brush.size(), (double) sumY / brush.size(), brush.size());
+    }
+
+    /** Helper Method: moves the target color to the dominant color next to it around (x, y), for a brush of size pixels */
+    private void followTarget(double x, double y, int size) {
+        int radius = Math.max(clickRadius, (int) Math.sqrt(size) / 2);
+        synchronized(histogram) {
+            int[] pixels = reader.read(image);
+            histogram.update(pixels, image.getWidth(), image.getHeight()); // only pixels that changed color move
+            targetColor = histogram.follow(pixels, targetColor, (int) x, (int) y, radius);
         }
     }
 
@@ -93,7 +163,19 @@ public class CamPaint extends Webcam {
     @Override
     public void handleMousePress(int x, int y) {
         if(!paintMode) { // only if not currently in paint mode
-            targetColor = new Color(image.getRGB(x, y)); // set target color as color at point where clicked
+            BufferedImage frame = displayed; // the frame that was clicked on
+            synchronized(histogram) {
+                int[] pixels = reader.read(frame);
+                histogram.update(pixels, frame.getWidth(), frame.getHeight());
+                targetColor = histogram.select(pixels, x, y, clickRadius); // the dominant color around where clicked
+                if(histogram.share(targetColor) > 0.2) {
+                    System.out.println("That color covers " + Math.round(histogram.share(targetColor) * 100) + "% of the frame, so the background may get painted too.");
+                }
+            }
+            if(targetColor == null) { // no frame counted, so just the clicked pixel
+                targetColor = new Color(frame.getRGB(x, y));
+            }
+            finder.retarget(); // tracking starts over from a full scan, not from wherever the last brush was
             paintMode = true; // enable painting
         }
     }
@@ -103,6 +185,7 @@ public class CamPaint extends Webcam {
     public void handleKeyPress(char k) {
         if (k == 'p' || k == 'r' || k == 'w') { // display: painting, recolored image, or webcam
             displayMode = k;
+            markAllDirty();
             if(k == 'p') {
                 System.out.println("You have switched to paint mode.");
             } else if(k == 'r') {
@@ -112,8 +195,8 @@ public class CamPaint extends Webcam {
             }
         }
         else if (k == 'c') { // clear
+            history.clear(); // first, so no stroke from before can be painted onto the new canvas
             clearPainting();
-            finder.setLargestRegions(new ArrayList());
             System.out.println("You have cleared the canvas.");
         }
         else if (k == 'o') { // save the recolored image
@@ -124,6 +207,49 @@ public class CamPaint extends Webcam {
             saveImage(painting, "pictures/painting.png", "png");
             System.out.println("You have saved the painting.");
         }
+        else if (k == 'i') { // print how the webcam pipeline is keeping up
+            System.out.println(getPipelineStats());
+            System.out.println(finder.getBufferPool());
+            System.out.println(history.size() + " strokes, " + history.getSpilledStrokes() + " spilled to disk, "
+                    + history.getMemoryUsed() * 4 / 1024 + " KB in memory");
+            if(Metrics.enabled) {
+                System.out.println(Metrics.report());
+            }
+            if(frames > 0 && allocatedBytes >= 0) {
+                System.out.printf("processImage allocates %.2f MB per frame%n", allocatedBytes / 1e6 / frames);
+            }
+        }
+        else if (k == 'm') { // cycle pyramid mode: off, 2x, 4x (coarse-to-fine search for just the brush)
+            finder.setPyramid(finder.getPyramid() == 1 ? 2 : finder.getPyramid() == 2 ? 4 : 1);
+            System.out.println(finder.getPyramid() == 1 ? "You have turned off pyramid mode." : "You have switched to " + finder.getPyramid() + "x pyramid mode.");
+            if(finder.getPyramidFinder() != null) {
+                System.out.println(finder.getPyramidFinder());
+            }
+        }
+        else if (k == 'f') { // toggle letting the target color follow the brush's color
+            following = !following;
+            System.out.println("You have turned " + (following ? "on" : "off") + " color following.");
+        }
+        else if (k == 'n') { // cycle the noise filter on the color mask: off, 3x3 open, 3x3 close
+            MaskMorphology m = finder.getMorphology();
+            finder.setMorphology(m == null ? 'o' : m.getOp() == 'o' ? 'c' : 'n', 1);
+            if(finder.getEngine() == 'b') { // the BFS doesn't use a mask, so switch to the scanline fill
+                finder.setEngine('s');
+            }
+            System.out.println(finder.getMorphology() == null ? "You have turned off the noise filter."
+                    : "You have switched the noise filter to " + finder.getMorphology() + ".");
+        }
+        else if (k == 'e') { // toggle the stats only brush: paint the ellipse of the brush's moments, keeping none of its pixels
+            finder.setStatsOnly(!finder.isStatsOnly());
+            System.out.println("You have turned " + (finder.isStatsOnly() ? "on" : "off") + " the ellipse brush.");
+        }
+        else if (k == 'k') { // toggle frame to frame tracking of the brush
+            tracking = !tracking;
+            System.out.println("You have turned " + (tracking ? "on" : "off") + " tracking.");
+            if(finder.getTracker() != null) {
+                System.out.println(finder.getTracker());
+            }
+        }
         else {
             System.out.println("unexpected key "+k);
         }
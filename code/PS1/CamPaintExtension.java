@@ -68,7 +68,7 @@ public class CamPaintExtension extends Webcam {
     @Override
     public void draw(Graphics g) {
         if(displayMode == 'w') { // shows webcam
-            g.drawImage(image, 0, 0, null);
+            g.drawImage(displayed, 0, 0, null);
         } else if(displayMode == 'r') { // shows recolored image
             g.drawImage(finder.getRecoloredImage(), 0, 0, null);
         } else if(displayMode == 'p') { // shows painting
@@ -98,7 +98,7 @@ public class CamPaintExtension extends Webcam {
     @Override
     public void handleMousePress(int x, int y) {
         if(!paintMode) { // only if not currently in paint mode
-            targetColor = new Color(image.getRGB(x, y)); // set target color as color at point where clicked
+            targetColor = new Color(displayed.getRGB(x, y)); // set target color as color at point where clicked (in the frame shown)
             paintMode = true; // enable painting
         }
     }
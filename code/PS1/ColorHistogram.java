@@ -0,0 +1,270 @@
+/**
+ * ColorHistogram
+ * Histogram of a frame's colors over a quantized RGB cube: 32K bins, 5 bits per channel (the same cells as
+ * ColorMatcher's quantized table). Used to pick a target color from a click more robustly than reading the one pixel
+ * under the mouse: the dominant bin in a neighborhood of the click is chosen, and the target is the average color of
+ * the pixels in it, so a single noisy pixel can't throw the target off.
+ *
+ * The bin of every pixel is kept, so each new frame is folded in as a delta: every pixel is still binned and compared
+ * with its old bin, but only those whose bin changed move a count (from a webcam, a small share of them), and the
+ * counts are never cleared. The first frame (or a frame of a new size) is counted from scratch. Either way the frame
+ * can be split over the common fork/join pool, each chunk collecting its count changes separately.
+ *
+ * follow() lets a target drift with the lighting: it moves the target to the dominant bin next to it (in the cube)
+ * around where the brush was found, without another click.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ColorHistogram {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    public static final int bins = 1 << 15;     // 32 levels per channel
+
+    private final boolean parallel;             // whether counts and updates are split over the fork/join pool
+    private int width, height;                  // size of the frames being counted
+    private int[] counts;                       // pixels of the current frame in each bin
+    private char[] pixelBins;                   // bin of each pixel of the current frame (a char holds 15 bits)
+    private int[][] partial;                    // count changes of each parallel chunk, all zero between uses
+    private int[] local;                        // scratch counts for neighborhoods, all zero between uses
+    private IntStack touched;                   // bins with nonzero scratch counts
+    private long changed;                       // pixels that changed bin in the last update
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public ColorHistogram() {
+        this(false);
+    }
+
+    public ColorHistogram(boolean parallel) {
+        this.parallel = parallel;
+        this.counts = new int[bins];
+        this.local = new int[bins];
+        this.touched = new IntStack();
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    /** Pixels of the current frame in the bin */
+    public int getCount(int bin) {
+        return counts[bin];
+    }
+
+    /** How many pixels changed bin in the last update (all of them for a full count) */
+    public long getChanged() {
+        return changed;
+    }
+
+    /** Bin of a packed RGB color: the top 5 bits of each channel */
+    public static int bin(int rgb) {
+        return ((rgb >> 9) & 0x7c00) | ((rgb >> 6) & 0x3e0) | ((rgb >> 3) & 0x1f);
+    }
+
+    /** Color at the center of a bin's cell */
+    public static Color center(int bin) {
+        return new Color(((bin >> 10) << 3) | 4, (((bin >> 5) & 0x1f) << 3) | 4, ((bin & 0x1f) << 3) | 4);
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Makes the histogram that of the new frame (packed RGB, row by row), as a delta if it is the same size */
+    public void update(int[] pixels, int width, int height) {
+        int n = width * height;
+        boolean full = pixelBins == null || width != this.width || height != this.height;
+        if(full) {
+            this.width = width;
+            this.height = height;
+            pixelBins = new char[n];
+            Arrays.fill(counts, 0);
+        }
+        if(parallel) {
+            changed = updateParallel(pixels, n, full);
+        } else {
+            changed = full ? count(pixels, 0, n, counts) : delta(pixels, 0, n, counts);
+        }
+    }
+
+    /** Helper Method: counts pixels from (inclusive) to to (exclusive) into into, recording their bins; returns to - from */
+    private long count(int[] pixels, int from, int to, int[] into) {
+        for(int i = from; i < to; i++) {
+            int b = bin(pixels[i]);
+            pixelBins[i] = (char) b;
+            into[b]++;
+        }
+        return to - from;
+    }
+
+    /**
+     * Helper Method: moves the counts in into of pixels from (inclusive) to to (exclusive) whose bin changed since the
+     * last frame, recording their new bins; returns how many changed
+     */
+    private long delta(int[] pixels, int from, int to, int[] into) {
+        long moved = 0;
+        for(int i = from; i < to; i++) {
+            int b = bin(pixels[i]);
+            int old = pixelBins[i];
+            if(b != old) { // only a changed pixel moves a count
+                into[old]--;
+                into[b]++;
+                pixelBins[i] = (char) b;
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Helper Method: counts (or for a delta, updates) the frame in one chunk per thread of the common pool, each into
+     * its own partial counts, then adds the chunks to the counts; returns how many pixels changed bin
+     */
+    private long updateParallel(int[] pixels, int n, boolean full) {
+        int chunks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), n / 65536));
+        if(partial == null || partial.length != chunks) {
+            partial = new int[chunks][bins];
+        }
+        long[] moved = new long[chunks];
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for(int c = 0; c < chunks; c++) {
+            int chunk = c;
+            int from = (int) ((long) n * chunk / chunks), to = (int) ((long) n * (chunk + 1) / chunks);
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                moved[chunk] = full ? count(pixels, from, to, partial[chunk]) : delta(pixels, from, to, partial[chunk]);
+            }));
+        }
+        long total = 0;
+        for(int c = 0; c < chunks; c++) {
+            tasks.get(c).join();
+            total += moved[c];
+        }
+        for(int[] p : partial) {
+            for(int b = 0; b < bins; b++) {
+                counts[b] += p[b];
+                p[b] = 0;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Fraction of the current frame in the color's bin or the bins next to it, which is roughly how much of the frame
+     * a target of that color will match; a large share means it will pick up the background too
+     */
+    public double share(Color color) {
+        if(pixelBins == null) return 0;
+        int bin = bin(color.getRGB());
+        long n = 0;
+        for(int dr = -1; dr <= 1; dr++) {
+            for(int dg = -1; dg <= 1; dg++) {
+                for(int db = -1; db <= 1; db++) {
+                    int nb = offset(bin, dr, dg, db);
+                    if(nb >= 0) n += counts[nb];
+                }
+            }
+        }
+        return n / (double) (width * height);
+    }
+
+    /**
+     * Picks a target color from a click: the dominant bin among the pixels within radius of (x, y), where each bin
+     * also gets the votes of the bins next to it in the cube (so a color split across two cells still wins).
+     * Returns the average color of the pixels in that bin, or null if the histogram has no frame yet.
+     * pixels must be the frame last passed to update.
+     */
+    public Color select(int[] pixels, int x, int y, int radius) {
+        return dominant(pixels, x, y, radius, -1);
+    }
+
+    /**
+     * Lets a target drift: among the bins next to the target's in the cube (and its own), finds the dominant one within
+     * radius of (x, y), such as the brush's centroid, and returns the average color of its pixels there;
+     * the target unchanged if none of them are there. pixels must be the frame last passed to update.
+     */
+    public Color follow(int[] pixels, Color target, int x, int y, int radius) {
+        Color followed = dominant(pixels, x, y, radius, bin(target.getRGB()));
+        return followed == null ? target : followed;
+    }
+
+    /** Helper Method: dominant bin in the neighborhood, limited to the cube neighbors of near unless it is -1 */
+    private Color dominant(int[] pixels, int x, int y, int radius, int near) {
+        if(pixelBins == null) return null;
+        int x0 = Math.max(x - radius, 0), x1 = Math.min(x + radius, width - 1);
+        int y0 = Math.max(y - radius, 0), y1 = Math.min(y + radius, height - 1);
+        for(int py = y0; py <= y1; py++) { // count the neighborhood
+            for(int px = x0; px <= x1; px++) {
+                int b = pixelBins[py * width + px];
+                if(near >= 0 && !adjacent(b, near)) continue;
+                if(local[b]++ == 0) touched.push(b);
+            }
+        }
+
+        int best = -1, bestVotes = 0;
+        for(int t = 0; t < touched.size(); t++) { // each bin's own count plus its cube neighbors'
+            int b = touched.get(t);
+            int votes = 0;
+            for(int dr = -1; dr <= 1; dr++) {
+                for(int dg = -1; dg <= 1; dg++) {
+                    for(int db = -1; db <= 1; db++) {
+                        int nb = offset(b, dr, dg, db);
+                        if(nb >= 0) votes += local[nb];
+                    }
+                }
+            }
+            votes = votes * 2 + local[b]; // its own pixels break ties between neighbors
+            if(votes > bestVotes) {
+                best = b;
+                bestVotes = votes;
+            }
+        }
+        for(int t = 0; t < touched.size(); t++) { // leave the scratch counts zeroed for next time
+            local[touched.get(t)] = 0;
+        }
+        touched.clear();
+        if(best < 0) return null;
+
+        long r = 0, g = 0, b = 0, n = 0; // average color of the winning bin's pixels in the neighborhood
+        for(int py = y0; py <= y1; py++) {
+            for(int px = x0; px <= x1; px++) {
+                int i = py * width + px;
+                if(pixelBins[i] != best) continue;
+                int rgb = pixels[i];
+                r += (rgb >> 16) & 0xff;
+                g += (rgb >> 8) & 0xff;
+                b += rgb & 0xff;
+                n++;
+            }
+        }
+        return new Color((int) (r / n), (int) (g / n), (int) (b / n));
+    }
+
+    /** Helper Method: the bin one step away along each channel, or -1 if that is outside the cube */
+    private static int offset(int bin, int dr, int dg, int db) {
+        int r = (bin >> 10) + dr, g = ((bin >> 5) & 0x1f) + dg, b = (bin & 0x1f) + db;
+        if(r < 0 || r > 31 || g < 0 || g > 31 || b < 0 || b > 31) return -1;
+        return (r << 10) | (g << 5) | b;
+    }
+
+    /** Helper Method: whether two bins are the same or touch in the cube */
+    private static boolean adjacent(int a, int b) {
+        return Math.abs((a >> 10) - (b >> 10)) <= 1
+                && Math.abs(((a >> 5) & 0x1f) - ((b >> 5) & 0x1f)) <= 1
+                && Math.abs((a & 0x1f) - (b & 0x1f)) <= 1;
+    }
+}
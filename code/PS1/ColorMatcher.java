@@ -0,0 +1,206 @@
+/**
+ * ColorMatcher
+ * Decides whether a packed RGB pixel is "similar enough" to a target color, with the distance metric compiled into
+ * lookup tables once per target color, so that testing a pixel is a few array loads instead of boxing it into a
+ * Color and doing the arithmetic again.
+ *
+ * Metrics:
+ * 'b' box: every channel within tolerance of the target's (three 256-entry boolean tables)
+ * 'e' euclidean: truncated RGB distance at most tolerance, the RegionFinder test (three 256-entry squared-difference tables)
+ * 'x' exact euclidean: untruncated RGB distance at most tolerance, the RegionFinderExtension test (the same tables)
+ * 'l' lab: CIE76 distance in L*a*b* at most tolerance, closer to how different colors look (32K-entry table)
+ * Any metric can instead be compiled into the 32K-entry table (5 bits per channel), which is a single load per pixel
+ * but judges each pixel by the center of its 8x8x8 cell of the RGB cube.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+
+public class ColorMatcher {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final int target;                   // packed RGB of the target color
+    private final int tolerance;                // largest distance that still counts as a match
+    private final char metric;                  // 'b', 'e', 'x' or 'l', see above
+
+    private boolean[] rMatch, gMatch, bMatch;   // box: whether each channel value is within tolerance
+    private int[] rDist, gDist, bDist;          // euclidean: squared difference from the target for each channel value
+    private int maxDist;                        // euclidean (and exact): largest sum of squared differences that matches
+    private boolean[] quantized;                // 32K table indexed by the top 5 bits of each channel, null if not used
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    /** Compiles the metric for the target color into per-channel tables ('b', 'e' and 'x') or the 32K table ('l') */
+    public ColorMatcher(Color target, int tolerance, char metric) {
+        this(target, tolerance, metric, metric == 'l');
+    }
+
+    /** Same, but with quantize true every metric is compiled into the 32K table */
+    public ColorMatcher(Color target, int tolerance, char metric, boolean quantize) {
+        if(metric != 'b' && metric != 'e' && metric != 'x' && metric != 'l') {
+            throw new IllegalArgumentException("Unknown color metric " + metric);
+        }
+        if(metric == 'l' && !quantize) {
+            throw new IllegalArgumentException("The lab metric only comes as a 32K table");
+        }
+        this.target = target.getRGB() & 0xffffff;
+        this.tolerance = tolerance;
+        this.metric = metric;
+        if(quantize) {
+            buildQuantized();
+        } else if(metric == 'b') {
+            buildBox();
+        } else {
+            buildEuclidean();
+        }
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    public Color getTarget() {
+        return new Color(target);
+    }
+
+    /** Packed RGB of the target color */
+    public int getTargetRGB() {
+        return target;
+    }
+
+    public int getTolerance() {
+        return tolerance;
+    }
+
+    public char getMetric() {
+        return metric;
+    }
+
+    public boolean isQuantized() {
+        return quantized != null;
+    }
+
+    /** Whether this matcher was compiled for the given target, tolerance and metric */
+    public boolean isFor(Color target, int tolerance, char metric) {
+        return (target.getRGB() & 0xffffff) == this.target && tolerance == this.tolerance && metric == this.metric;
+    }
+
+    /**
+     * Returns matcher if it was compiled for the same target, tolerance and metric, otherwise compiles a new one;
+     * lets callers keep one matcher across frames and only pay for the tables when the target changes
+     */
+    public static ColorMatcher reuse(ColorMatcher matcher, Color target, int tolerance, char metric) {
+        if(matcher != null && matcher.isFor(target, tolerance, metric)) {
+            return matcher;
+        }
+        return new ColorMatcher(target, tolerance, metric);
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Tests whether the packed RGB pixel is similar enough to the target color (alpha is ignored) */
+    public boolean matches(int rgb) {
+        if(quantized != null) {
+            return quantized[((rgb >> 9) & 0x7c00) | ((rgb >> 6) & 0x3e0) | ((rgb >> 3) & 0x1f)];
+        }
+        int r = (rgb >> 16) & 0xff, g = (rgb >> 8) & 0xff, b = rgb & 0xff;
+        if(rMatch != null) {
+            return rMatch[r] && gMatch[g] && bMatch[b];
+        }
+        return rDist[r] + gDist[g] + bDist[b] <= maxDist;
+    }
+
+    public boolean matches(Color c) {
+        return matches(c.getRGB());
+    }
+
+    /** Exact distance of the packed RGB color from the target under this metric (no tables) */
+    public double distance(int rgb) {
+        int r = (rgb >> 16) & 0xff, g = (rgb >> 8) & 0xff, b = rgb & 0xff;
+        int tr = (target >> 16) & 0xff, tg = (target >> 8) & 0xff, tb = target & 0xff;
+        if(metric == 'b') {
+            return Math.max(Math.abs(r - tr), Math.max(Math.abs(g - tg), Math.abs(b - tb)));
+        }
+        if(metric == 'e') {
+            return (int) Math.sqrt((r - tr) * (r - tr) + (g - tg) * (g - tg) + (b - tb) * (b - tb)); // truncated, like RegionFinder
+        }
+        if(metric == 'x') {
+            return Math.sqrt((r - tr) * (r - tr) + (g - tg) * (g - tg) + (b - tb) * (b - tb));
+        }
+        double[] lab = toLab(r, g, b);
+        double[] targetLab = toLab(tr, tg, tb);
+        double dl = lab[0] - targetLab[0], da = lab[1] - targetLab[1], db = lab[2] - targetLab[2];
+        return Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+    /** Helper Method: box tables, a channel value matches if it is within tolerance of the target's */
+    private void buildBox() {
+        rMatch = new boolean[256];
+        gMatch = new boolean[256];
+        bMatch = new boolean[256];
+        for(int v = 0; v < 256; v++) {
+            rMatch[v] = Math.abs(v - ((target >> 16) & 0xff)) <= tolerance;
+            gMatch[v] = Math.abs(v - ((target >> 8) & 0xff)) <= tolerance;
+            bMatch[v] = Math.abs(v - (target & 0xff)) <= tolerance;
+        }
+    }
+
+    /** Helper Method: euclidean tables (either kind), squared differences per channel, summed and compared when matching */
+    private void buildEuclidean() {
+        rDist = new int[256];
+        gDist = new int[256];
+        bDist = new int[256];
+        for(int v = 0; v < 256; v++) {
+            int r = v - ((target >> 16) & 0xff), g = v - ((target >> 8) & 0xff), b = v - (target & 0xff);
+            rDist[v] = r * r;
+            gDist[v] = g * g;
+            bDist[v] = b * b;
+        }
+        if(metric == 'x') {
+            maxDist = tolerance * tolerance; // sqrt(d) <= tolerance exactly when d <= tolerance^2
+        } else {
+            maxDist = (tolerance + 1) * (tolerance + 1) - 1; // (int) sqrt(d) <= tolerance exactly when d < (tolerance + 1)^2
+        }
+    }
+
+    /** Helper Method: 32K table, each 5-bit-per-channel cell judged by the distance of its center */
+    private void buildQuantized() {
+        quantized = new boolean[1 << 15];
+        for(int i = 0; i < quantized.length; i++) {
+            int r = ((i >> 10) << 3) | 4, g = (((i >> 5) & 0x1f) << 3) | 4, b = ((i & 0x1f) << 3) | 4;
+            quantized[i] = distance((r << 16) | (g << 8) | b) <= tolerance;
+        }
+    }
+
+    /** Helper Method: converts an sRGB color to CIE L*a*b* (D65 white) */
+    private static double[] toLab(int r, int g, int b) {
+        double rl = linear(r), gl = linear(g), bl = linear(b);
+        double x = (0.4124 * rl + 0.3576 * gl + 0.1805 * bl) / 0.95047;
+        double y = (0.2126 * rl + 0.7152 * gl + 0.0722 * bl);
+        double z = (0.0193 * rl + 0.1192 * gl + 0.9505 * bl) / 1.08883;
+        double fx = labF(x), fy = labF(y), fz = labF(z);
+        return new double[]{116 * fy - 16, 500 * (fx - fy), 200 * (fy - fz)};
+    }
+
+    private static double linear(int channel) {
+        double c = channel / 255.0;
+        return c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4);
+    }
+
+    private static double labF(double t) {
+        return t > 216.0 / 24389 ? Math.cbrt(t) : (24389.0 / 27 * t + 16) / 116;
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * DirectDataBuffer
+ * A DataBuffer over a direct (off-heap) ByteBuffer, so memory that native code writes into, such as an OpenCV image's
+ * pixels, can be a BufferedImage without copying it onto the heap first. wrapBGR makes 3-byte BGR images over such a
+ * buffer, laid out like TYPE_3BYTE_BGR but possibly with padding at the end of each row.
+ *
+ * Java2D can draw and read these images like any other, just through its generic (per-pixel) paths. The code that
+ * reads whole frames (PixelReader, BufferPool.copyOf, PyramidFinder) checks for them with of() and reads the buffer
+ * directly, a row at a time.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.color.*;
+import java.awt.image.*;
+import java.nio.*;
+
+public class DirectDataBuffer extends DataBuffer {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final ByteBuffer buffer;            // the pixel bytes, blue, green, red for each pixel
+    private final int width, height;            // size of the image the bytes are laid out for
+    private final int stride;                   // bytes from the start of one row to the start of the next
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public DirectDataBuffer(ByteBuffer buffer, int width, int height, int stride) {
+        super(DataBuffer.TYPE_BYTE, stride * height);
+        if(stride < 3 * width || buffer.capacity() < stride * height) {
+            throw new IllegalArgumentException("Buffer of " + buffer.capacity() + " bytes with stride " + stride
+                    + " can't hold " + width + "x" + height + " BGR pixels");
+        }
+        this.buffer = buffer;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    /** The buffer the pixels are in; use absolute gets (or a duplicate), since other threads may read it too */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    @Override
+    public int getElem(int bank, int i) {
+        return buffer.get(i) & 0xff;
+    }
+
+    @Override
+    public void setElem(int bank, int i, int value) {
+        buffer.put(i, (byte) value);
+    }
+
+    /** A BufferedImage showing the bytes of the buffer as BGR pixels, rows stride bytes apart (no copy) */
+    public static BufferedImage wrapBGR(ByteBuffer buffer, int width, int height, int stride) {
+        DirectDataBuffer data = new DirectDataBuffer(buffer, width, height, stride);
+        PixelInterleavedSampleModel model = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width, height, 3, stride, new int[] {2, 1, 0});
+        WritableRaster raster = Raster.createWritableRaster(model, data, null);
+        ColorModel colors = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false,
+                ColorModel.OPAQUE, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colors, raster, false, null);
+    }
+
+    /** The image's DirectDataBuffer if it was made by wrapBGR (and isn't a subimage), otherwise null */
+    public static DirectDataBuffer of(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if(raster.getDataBuffer() instanceof DirectDataBuffer
+                && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && raster.getWidth() == ((DirectDataBuffer) raster.getDataBuffer()).width) {
+            return (DirectDataBuffer) raster.getDataBuffer();
+        }
+        return null;
+    }
+
+    /** Packed RGB of pixel (x, y) */
+    public int getRGB(int x, int y) {
+        int j = y * stride + 3 * x;
+        return ((buffer.get(j + 2) & 0xff) << 16) | ((buffer.get(j + 1) & 0xff) << 8) | (buffer.get(j) & 0xff);
+    }
+
+    /**
+     * Reads pixels x0 (inclusive) to x1 (exclusive) of rows y0 to y1 into packed RGB ints, row by row with rowLength
+     * ints per row of into, a row of bytes at a time through the scratch array (grown if it is too small).
+     * Returns the scratch array, to be passed back in next time.
+     */
+    public byte[] readRGB(int x0, int y0, int x1, int y1, int[] into, int rowLength, byte[] scratch) {
+        int n = 3 * (x1 - x0);
+        if(scratch == null || scratch.length < n) {
+            scratch = new byte[n];
+        }
+        ByteBuffer view = buffer.duplicate(); // own position, so readers on other threads don't get in each other's way
+        for(int y = y0; y < y1; y++) {
+            view.position(y * stride + 3 * x0);
+            view.get(scratch, 0, n);
+            int out = y * rowLength + x0;
+            for(int j = 0; j < n; j += 3) {
+                into[out++] = ((scratch[j + 2] & 0xff) << 16) | ((scratch[j + 1] & 0xff) << 8) | (scratch[j] & 0xff);
+            }
+        }
+        return scratch;
+    }
+
+    /**
+     * Copies the pixels into a TYPE_3BYTE_BGR image of the same size, a row at a time through its raster's
+     * setDataElements (whose elements come red first), so the image isn't left unaccelerated by taking its array
+     */
+    public void copyTo(BufferedImage bgr) {
+        WritableRaster raster = bgr.getRaster();
+        ByteBuffer view = buffer.duplicate();
+        int n = 3 * width;
+        byte[] row = new byte[n];
+        for(int y = 0; y < height; y++) {
+            view.position(y * stride);
+            view.get(row, 0, n);
+            for(int j = 0; j < n; j += 3) { // blue, green, red to red, green, blue
+                byte blue = row[j];
+                row[j] = row[j + 2];
+                row[j + 2] = blue;
+            }
+            raster.setDataElements(0, y, width, 1, row);
+        }
+    }
+}
@@ -1,7 +1,9 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.Path2D;
 import java.awt.image.*;
 import java.io.File;
+import java.util.ArrayList;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
@@ -11,6 +13,22 @@ import javax.swing.*;
  *
  * @author Chris Bailey-Kellogg, Dartmouth CS 10, Winter 2014
  * @author CBK, Spring 2015, revised to factor out the image, provide simple event handling
+ *
+ * Drawing goes through a retained back buffer (a VolatileImage, so on most platforms it lives in video memory and
+ * is blitted by the graphics hardware): draw() paints into the buffer, and the buffer is copied to the screen. A
+ * subclass that turns on dirty tracking reports what changed with markDirty() and calls repaintDirty(), and then only
+ * those areas are drawn again; anything else Swing asks to have painted (say, after the window was covered) is just
+ * copied from the buffer. Without dirty tracking every repaint draws everything it covers, as before.
+ *
+ * Dirty areas are kept as a short list of rectangles rather than one bounding box, so that many small changes spread
+ * over the window (like blobs moving) don't add up to redrawing all of it: a marked rectangle is only merged with those
+ * close enough that their bounding box takes in at most mergeWaste pixels that neither covered. Once there are maxDirty
+ * of them, a new one is merged with the one that grows the least, unless so much is dirty that the rectangles cover as
+ * much as their bounding box, and then they become that one box.
+ * The dirty rectangles are drawn again with a single call of draw(), clipped to just them.
+ *
+ * A subclass can draw an overlay (see drawOverlay) into the buffer over what draw() drew; its box is marked dirty on
+ * every repaint, so it keeps up to date however little else changed.
  */
 public class DrawingGUI extends JFrame {
     public JComponent canvas;						// handles graphics display
@@ -18,6 +36,15 @@ public class DrawingGUI extends JFrame {
     protected Timer timer;							// one delay-driven event
     private static final int delay = 100;			// default delay for the timer (milliseconds)
 
+    private boolean backBuffered = true;			// whether drawing goes through the back buffer
+    private boolean dirtyTracking = false;			// whether only the areas reported by markDirty are drawn again
+    private VolatileImage backBuffer;				// what has been drawn so far, null until first painted (or if unavailable)
+    private final ArrayList<Rectangle> dirty = new ArrayList<Rectangle>();	// areas drawn out of date since the last paint
+    private final Object dirtyLock = new Object();	// guards dirty, which any thread may mark
+    private static final int mergeWaste = 1024;		// most clean pixels that merging two dirty rectangles may add
+    private static final int maxDirty = 64;			// most dirty rectangles kept before merging regardless
+    private volatile Rectangle overlayBox;			// where the overlay was last drawn, null if there is none
+
     /**
      * Creates an empty, title-less frame.
      * Call initWindow to finish it off.
@@ -60,7 +87,12 @@ public class DrawingGUI extends JFrame {
         canvas = new JComponent() {
             public void paintComponent(Graphics g) {
                 super.paintComponent(g);
-                draw(g);  //our object's drawing method call
+                if (!backBuffered || !paintBackBuffer(g)) {
+                    Rectangle clip = g.getClipBounds();
+                    takeDirty(clip != null ? clip : new Rectangle(0, 0, getWidth(), getHeight()), false, getWidth(), getHeight());
+                    draw(g);  //our object's drawing method call
+                    overlayBox = drawOverlay(g);
+                }
             }
         };
 
@@ -118,6 +150,222 @@ public class DrawingGUI extends JFrame {
         timer.setDelay(delay);
     }
 
+    /**
+     * Turns the back buffer on or off (it is on by default, and quietly not used where it can't be made).
+     */
+    public void setBackBuffered(boolean backBuffered) {
+        this.backBuffered = backBuffered;
+        if (!backBuffered) {
+            backBuffer = null;
+        }
+    }
+
+    public boolean isBackBuffered() {
+        return backBuffered;
+    }
+
+    /**
+     * Turns dirty tracking on or off. With it on, the subclass must report every change to what draw() would draw
+     * with markDirty (or markAllDirty), since only those areas are drawn again.
+     */
+    public void setDirtyTracking(boolean dirtyTracking) {
+        this.dirtyTracking = dirtyTracking;
+        markAllDirty();
+    }
+
+    public boolean isDirtyTracking() {
+        return dirtyTracking;
+    }
+
+    /**
+     * Reports that the area of the canvas has changed and needs drawing again (any thread may call this).
+     */
+    public void markDirty(int x, int y, int width, int height) {
+        markDirty(new Rectangle(x, y, width, height));
+    }
+
+    public void markDirty(Rectangle area) {
+        if (area.isEmpty()) return;
+        synchronized (dirtyLock) {
+            Rectangle r = new Rectangle(area);
+            mergeNear(r);
+            if (dirty.size() == maxDirty) { // full
+                Rectangle bounds = new Rectangle(r);
+                long covered = area(r);
+                int best = 0;
+                long bestGrowth = Long.MAX_VALUE;
+                for (int i = 0; i < dirty.size(); i++) {
+                    Rectangle d = dirty.get(i);
+                    bounds.add(d);
+                    covered += area(d);
+                    long growth = unionArea(d, r) - area(d);
+                    if (growth < bestGrowth) {
+                        best = i;
+                        bestGrowth = growth;
+                    }
+                }
+                if (covered >= area(bounds)) { // the rectangles cover (at least) as much as their bounds, so use that
+                    dirty.clear();
+                    r = bounds;
+                } else { // fold it into whichever rectangle grows the least (and merge no further, or it snowballs)
+                    r.add(dirty.remove(best));
+                }
+            }
+            dirty.add(r);
+        }
+    }
+
+    /**
+     * Helper Method: takes every dirty rectangle close enough to r (see mergeWaste) out of the list and into r,
+     * over again until none is left close to the grown r
+     */
+    private void mergeNear(Rectangle r) {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = dirty.size() - 1; i >= 0; i--) {
+                Rectangle d = dirty.get(i);
+                if (waste(r, d) <= mergeWaste) {
+                    r.add(dirty.remove(i));
+                    merged = true;
+                }
+            }
+        }
+    }
+
+    /** Helper Method: number of pixels in r */
+    private static long area(Rectangle r) {
+        return (long) r.width * r.height;
+    }
+
+    /** Helper Method: area of the bounding box of a and b */
+    private static long unionArea(Rectangle a, Rectangle b) {
+        long w = Math.max(a.x + a.width, b.x + b.width) - Math.min(a.x, b.x);
+        long h = Math.max(a.y + a.height, b.y + b.height) - Math.min(a.y, b.y);
+        return w * h;
+    }
+
+    /** Helper Method: how many pixels the bounding box of a and b covers that neither of them does */
+    private static long waste(Rectangle a, Rectangle b) {
+        long overlapWidth = Math.min(a.x + a.width, b.x + b.width) - Math.max(a.x, b.x);
+        long overlapHeight = Math.min(a.y + a.height, b.y + b.height) - Math.max(a.y, b.y);
+        long overlap = overlapWidth > 0 && overlapHeight > 0 ? overlapWidth * overlapHeight : 0;
+        return unionArea(a, b) - area(a) - area(b) + overlap;
+    }
+
+    /**
+     * Reports that everything needs drawing again.
+     */
+    public void markAllDirty() {
+        markDirty(0, 0, Math.max(width, canvas == null ? 0 : canvas.getWidth()), Math.max(height, canvas == null ? 0 : canvas.getHeight()));
+    }
+
+    /**
+     * The areas that a repaint needs to cover: the dirty rectangles with dirty tracking (none if nothing has changed),
+     * otherwise the whole canvas.
+     */
+    public ArrayList<Rectangle> getDirtyAreas() {
+        ArrayList<Rectangle> areas = new ArrayList<Rectangle>();
+        if (!dirtyTracking) {
+            areas.add(new Rectangle(0, 0, canvas.getWidth(), canvas.getHeight()));
+            return areas;
+        }
+        Rectangle box = overlayBox;
+        if (box != null) { // an overlay may change every frame, even when nothing else does
+            markDirty(box);
+        }
+        synchronized (dirtyLock) {
+            for (Rectangle r : dirty) {
+                areas.add(new Rectangle(r));
+            }
+        }
+        return areas;
+    }
+
+    /**
+     * The bounds of all the areas that a repaint needs to cover (see getDirtyAreas), empty if there are none.
+     */
+    public Rectangle getRepaintBounds() {
+        Rectangle bounds = new Rectangle();
+        for (Rectangle r : getDirtyAreas()) {
+            if (bounds.isEmpty()) bounds = r;
+            else bounds.add(r);
+        }
+        return bounds;
+    }
+
+    /**
+     * Asks Swing to repaint just what has been marked dirty, a rectangle at a time (everything, without dirty tracking).
+     */
+    public void repaintDirty() {
+        for (Rectangle r : getDirtyAreas()) {
+            canvas.repaint(r);
+        }
+    }
+
+    /**
+     * Helper Method: brings the back buffer up to date (drawing the dirty part of the clip, or the clip without dirty
+     * tracking, or everything if the buffer is new or its contents were lost) and copies it to the screen.
+     * Returns false if there is no back buffer to be had, so the caller should draw directly.
+     */
+    private boolean paintBackBuffer(Graphics g) {
+        int w = canvas.getWidth(), h = canvas.getHeight();
+        if (w <= 0 || h <= 0) return false;
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) clip = new Rectangle(0, 0, w, h);
+        do {
+            int state = backBuffer == null || backBuffer.getWidth() != w || backBuffer.getHeight() != h
+                    ? VolatileImage.IMAGE_INCOMPATIBLE : backBuffer.validate(canvas.getGraphicsConfiguration());
+            if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+                backBuffer = canvas.createVolatileImage(w, h);
+                if (backBuffer == null) return false; // not displayable yet
+            }
+            boolean fresh = state != VolatileImage.IMAGE_OK; // new, or back but without what was in it
+            ArrayList<Rectangle> areas = takeDirty(clip, fresh, w, h);
+            if (!areas.isEmpty()) {
+                Graphics2D bg = backBuffer.createGraphics();
+                Path2D redraw = new Path2D.Double(Path2D.WIND_NON_ZERO); // the union of the rectangles
+                bg.setColor(canvas.getBackground());
+                for (Rectangle area : areas) {
+                    bg.fillRect(area.x, area.y, area.width, area.height);
+                    redraw.append(area, false);
+                }
+                bg.setClip(redraw); // so one draw() redraws just the dirty rectangles
+                bg.setColor(canvas.getForeground());
+                bg.setFont(canvas.getFont());
+                draw(bg);
+                overlayBox = drawOverlay(bg); // over the freshly drawn areas only, so a translucent box never builds up
+                bg.dispose();
+            }
+            g.drawImage(backBuffer, 0, 0, null);
+        } while (backBuffer.contentsLost());
+        return true;
+    }
+
+    /**
+     * Helper Method: the parts of the back buffer to draw again for a paint of the clip, taking them out of the dirty
+     * list (a dirty rectangle that sticks out of the clip stays dirty whole, to be drawn again when it is painted)
+     */
+    private ArrayList<Rectangle> takeDirty(Rectangle clip, boolean fresh, int w, int h) {
+        ArrayList<Rectangle> areas = new ArrayList<Rectangle>();
+        synchronized (dirtyLock) {
+            if (fresh || !dirtyTracking) {
+                dirty.clear();
+                areas.add(fresh ? new Rectangle(0, 0, w, h) : clip);
+                return areas;
+            }
+            for (int i = dirty.size() - 1; i >= 0; i--) {
+                Rectangle r = dirty.get(i);
+                if (clip.contains(r)) {
+                    areas.add(dirty.remove(i));
+                } else if (clip.intersects(r)) {
+                    areas.add(r.intersection(clip));
+                }
+            }
+        }
+        return areas;
+    }
+
     /**
      * Method to draw in the canvas, to be overridden by subclasses.
      * @param g
@@ -125,6 +373,15 @@ public class DrawingGUI extends JFrame {
     public void draw(Graphics g) {
     }
 
+    /**
+     * Method to draw an overlay over what draw() drew, to be overridden by subclasses whose overlay changes on its own
+     * (like Webcam's Metrics). Returns the box it covers, which is drawn again on every repaint, or null if none.
+     * @param g
+     */
+    protected Rectangle drawOverlay(Graphics g) {
+        return null;
+    }
+
     /**
      * Method to handle a mouse press, to be overridden by subclasses.
      * @param x		x coordinate of mouse press
@@ -0,0 +1,113 @@
+/**
+ * FrameRing
+ * A bounded ring buffer for handing frames from one stage of the webcam pipeline to the next. When it is full,
+ * adding a frame drops the oldest one instead of blocking, so a slow stage never holds up the stage before it;
+ * it just sees fewer, fresher frames. Keeps count of the frames it has dropped.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.util.function.Consumer;
+
+public class FrameRing<T> {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final Object[] frames;              // the ring
+    private int head;                           // index of the oldest frame
+    private int size;                           // how many frames are in the ring
+    private long dropped;                       // how many frames were thrown away without being taken
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public FrameRing(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, not " + capacity);
+        }
+        this.frames = new Object[capacity];
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Adds a frame, dropping the oldest one if the ring is full. Returns the dropped frame, or null. */
+    public synchronized T offer(T frame) {
+        T old = null;
+        if(size == frames.length) { // full: the oldest frame makes room
+            old = removeOldest();
+            dropped++;
+        }
+        frames[(head + size) % frames.length] = frame;
+        size++;
+        notifyAll();
+        return old;
+    }
+
+    /** Removes and returns the oldest frame, waiting for one if the ring is empty */
+    public synchronized T take() throws InterruptedException {
+        while(size == 0) {
+            wait();
+        }
+        return removeOldest();
+    }
+
+    /**
+     * Removes and returns the newest frame, waiting for one if the ring is empty; any older frames are dropped
+     * (and counted), each handed to onDrop first so whatever it holds can be given back
+     */
+    public synchronized T takeLatest(Consumer<? super T> onDrop) throws InterruptedException {
+        while(size == 0) {
+            wait();
+        }
+        while(size > 1) {
+            onDrop.accept(removeOldest());
+            dropped++;
+        }
+        return removeOldest();
+    }
+
+    /** Removes and returns the newest frame, dropping any older ones; null if the ring is empty */
+    public synchronized T pollLatest() {
+        if(size == 0) return null;
+        while(size > 1) {
+            removeOldest();
+            dropped++;
+        }
+        return removeOldest();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T removeOldest() {
+        T frame = (T) frames[head];
+        frames[head] = null;
+        head = (head + 1) % frames.length;
+        size--;
+        return frame;
+    }
+}
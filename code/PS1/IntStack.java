@@ -0,0 +1,77 @@
+/**
+ * IntStack
+ * A growable stack of primitive ints, so that the region finding engines can keep track of pixel indices
+ * without boxing every one of them into a Point or an Integer. The backing array is kept between uses, so
+ * one stack can be cleared and reused for every region of every frame.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.util.Arrays;
+
+public class IntStack {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private int[] elements;         // backing array, grown as needed but never shrunk
+    private int size;               // how many elements are currently on the stack
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public IntStack() {
+        this(1024);
+    }
+
+    public IntStack(int capacity) {
+        this.elements = new int[Math.max(capacity, 16)];
+        this.size = 0;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Pushes a value on top of the stack, doubling the backing array if it is full */
+    public void push(int value) {
+        if(size == elements.length) {
+            elements = Arrays.copyOf(elements, elements.length * 2);
+        }
+        elements[size++] = value;
+    }
+
+    /** Removes and returns the top of the stack */
+    public int pop() {
+        return elements[--size];
+    }
+
+    /** Returns the value at the given position (0 is the bottom of the stack) */
+    public int get(int i) {
+        return elements[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Empties the stack, but keeps the backing array for reuse */
+    public void clear() {
+        size = 0;
+    }
+
+    /** Returns a compact copy of the current contents, bottom first */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * MaskMorphology
+ * Binary morphology on a PixelMask, as a clean-up stage between building the mask and growing regions from it: on a
+ * noisy webcam frame, opening removes the specks that would each become a region (only to be thrown away for being
+ * under minRegion), and closing fills the pinholes and cracks that split one brush into several regions.
+ *
+ * Operations: 'e' erode, 'd' dilate, 'o' open (erode then dilate), 'c' close (dilate then erode), each with a
+ * (2 radius + 1) square. The square is separable, so each is a pass along the rows and then one down the columns, and
+ * both work on whole words, 64 pixels at a time: along a row a word is ORed with itself shifted by 1..radius pixels
+ * (pulling in the bits of the words next to it), and down the columns a row of words is ORed with the rows within
+ * radius of it. Erosion is done as dilation of the complement, so pixels outside the image never erode a region.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+public class MaskMorphology {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    public static final int maxRadius = 16;     // largest square (33 x 33) worth doing a shift at a time
+
+    private final char op;                      // 'e', 'd', 'o' or 'c', see above
+    private final int radius;                   // half the width of the square, not counting the center
+    private long[] scratch;                     // the row pass's output, reused from frame to frame
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public MaskMorphology(char op, int radius) {
+        if(op != 'e' && op != 'd' && op != 'o' && op != 'c') {
+            throw new IllegalArgumentException("Unknown morphology operation " + op);
+        }
+        if(radius < 1 || radius > maxRadius) {
+            throw new IllegalArgumentException("Morphology radius must be 1 to " + maxRadius + ", not " + radius);
+        }
+        this.op = op;
+        this.radius = radius;
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    public char getOp() {
+        return op;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Applies the operation to the mask, in place */
+    public void apply(PixelMask mask) {
+        if(op == 'e' || op == 'o') erode(mask);
+        if(op != 'e') dilate(mask);
+        if(op == 'c') erode(mask);
+    }
+
+    /** Grows every set pixel into the square around it, in place */
+    public void dilate(PixelMask mask) {
+        int stride = mask.getStride(), height = mask.getHeight();
+        long[] bits = mask.getWords();
+        if(scratch == null || scratch.length < bits.length) {
+            scratch = new long[bits.length];
+        }
+        long tail = tailMask(mask.getWidth());
+        for(int y = 0; y < height; y++) {
+            dilateRow(bits, scratch, y * stride, stride, tail);
+        }
+        dilateColumns(scratch, bits, stride, height);
+    }
+
+    /** Keeps only the pixels whose whole square (inside the image) is set, in place */
+    public void erode(PixelMask mask) {
+        complement(mask);
+        dilate(mask);
+        complement(mask);
+    }
+
+    /**
+     * Helper Method: ORs the row of words starting at from[start] with itself shifted by 1..radius pixels each way,
+     * into the same row of to, leaving the bits past the end of the row clear
+     */
+    private void dilateRow(long[] from, long[] to, int start, int stride, long tail) {
+        int end = start + stride;
+        for(int w = start; w < end; w++) {
+            long word = from[w];
+            long prev = w > start ? from[w - 1] : 0;        // pixels just before this word's
+            long next = w < end - 1 ? from[w + 1] : 0;      // and just after
+            long grown = word;
+            for(int s = 1; s <= radius; s++) {
+                grown |= (word << s) | (prev >>> (64 - s)); // pixel x - s into pixel x
+                grown |= (word >>> s) | (next << (64 - s)); // pixel x + s into pixel x
+            }
+            to[w] = grown;
+        }
+        to[end - 1] &= tail;
+    }
+
+    /**
+     * Helper Method: sets each row of words of to to the OR of the rows of from within radius of it
+     * (a running OR down each column of words would need undoing, so each row just ORs its neighbors)
+     */
+    private void dilateColumns(long[] from, long[] to, int stride, int height) {
+        for(int y = 0; y < height; y++) {
+            int y0 = Math.max(0, y - radius), y1 = Math.min(height - 1, y + radius);
+            int out = y * stride;
+            System.arraycopy(from, y0 * stride, to, out, stride);
+            for(int yy = y0 + 1; yy <= y1; yy++) {
+                int in = yy * stride;
+                for(int w = 0; w < stride; w++) {
+                    to[out + w] |= from[in + w];
+                }
+            }
+        }
+    }
+
+    /** Helper Method: flips every pixel of the mask, leaving the bits past the end of each row clear */
+    private static void complement(PixelMask mask) {
+        int stride = mask.getStride();
+        long[] bits = mask.getWords();
+        long tail = tailMask(mask.getWidth());
+        for(int w = 0; w < bits.length; w++) {
+            bits[w] = ~bits[w];
+            if(w % stride == stride - 1) bits[w] &= tail;
+        }
+    }
+
+    /** Helper Method: the bits of a row's last word that are pixels of the image */
+    private static long tailMask(int width) {
+        int used = width & 63;
+        return used == 0 ? -1L : (1L << used) - 1;
+    }
+
+    @Override
+    public String toString() {
+        String name = op == 'e' ? "erode" : op == 'd' ? "dilate" : op == 'o' ? "open" : "close";
+        return name + " " + (2 * radius + 1) + "x" + (2 * radius + 1);
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * Metrics
+ * Lightweight instrumentation for the webcam loop: named counters and latency histograms that any thread can record
+ * into without locking, a periodic dump of all of them to a log, and the lines DrawingGUI shows as an overlay.
+ *
+ * Off unless the JVM is started with -Dmetrics=true. The switch is a static final constant, so when it is off the
+ * JIT drops the timing calls altogether and instrumented code runs as if they weren't there.
+ * -Dmetrics.period=millis sets how often the dump is written (default 5000), -Dmetrics.log=file where to (default
+ * standard out).
+ *
+ * Usage:
+ *   private static final Metrics.Histogram findTime = Metrics.histogram("findRegions");
+ *   long start = Metrics.start();
+ *   ... the work ...
+ *   Metrics.stop(findTime, start);
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class Metrics {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    public static final boolean enabled = Boolean.getBoolean("metrics");   // whether anything gets recorded at all
+
+    private static final ConcurrentSkipListMap<String, Counter> counters = new ConcurrentSkipListMap<String, Counter>();
+    private static final ConcurrentSkipListMap<String, Histogram> histograms = new ConcurrentSkipListMap<String, Histogram>();
+    private static ScheduledExecutorService dumper;                         // writes the periodic dumps, once started
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** The counter with the given name, made the first time it is asked for */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /** The latency histogram with the given name, made the first time it is asked for */
+    public static Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /** Start time for stop(), or 0 without reading the clock when metrics are off */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** Records the time since start into the histogram (nothing when metrics are off) */
+    public static void stop(Histogram histogram, long start) {
+        if(enabled) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    /** Adds one to the counter (nothing when metrics are off) */
+    public static void count(Counter counter) {
+        if(enabled) {
+            counter.add(1);
+        }
+    }
+
+    /** One line per counter and histogram, in name order */
+    public static ArrayList<String> lines() {
+        ArrayList<String> lines = new ArrayList<String>();
+        for(Counter counter : counters.values()) {
+            lines.add(counter.toString());
+        }
+        for(Histogram histogram : histograms.values()) {
+            lines.add(histogram.toString());
+        }
+        return lines;
+    }
+
+    /** All of the counters and histograms, one per line */
+    public static String report() {
+        return String.join("\n", lines());
+    }
+
+    /**
+     * Starts writing report() to the log every period (from -Dmetrics.period and -Dmetrics.log), on a daemon thread.
+     * Does nothing when metrics are off or the dumps have already started.
+     */
+    public static synchronized void startDumping() {
+        if(!enabled || dumper != null) return;
+        long period = Long.getLong("metrics.period", 5000);
+        String file = System.getProperty("metrics.log");
+        PrintStream log = System.out;
+        if(file != null) {
+            try {
+                log = new PrintStream(new FileOutputStream(file, true), true);
+            } catch(IOException e) {
+                System.err.println("Couldn't open metrics log " + file + ", writing to standard out instead");
+            }
+        }
+        PrintStream out = log;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Metrics dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> out.println("--- metrics at " + new Date() + "\n" + report()),
+                period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Zeroes every counter and histogram */
+    public static void reset() {
+        for(Counter counter : counters.values()) counter.reset();
+        for(Histogram histogram : histograms.values()) histogram.reset();
+    }
+
+    /**
+     * PUBLIC CLASS
+     *
+     * Counter
+     * A count that many threads can add to at once (each thread mostly adds to its own cell)
+     */
+
+    public static class Counter {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+        }
+
+        public void add(long n) {
+            count.add(n);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        public void reset() {
+            count.reset();
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + get();
+        }
+    }
+
+    /**
+     * PUBLIC CLASS
+     *
+     * Histogram
+     * Latencies in nanoseconds, bucketed the way HdrHistogram does it: exact below 64 ns, and above that 32 buckets
+     * per power of two, so any value is known to within about 3% from a fixed array of counts. Recording is a couple
+     * of shifts and an atomic increment, with no locking and no allocation.
+     */
+
+    public static class Histogram {
+        private static final int subBits = 5;                       // 2^subBits buckets per power of two
+        private static final int sub = 1 << subBits;
+        private static final int buckets = 2 * sub + (63 - subBits - 1) * sub;
+
+        private final String name;
+        private final AtomicLongArray counts = new AtomicLongArray(buckets);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();           // nanoseconds
+        private final AtomicLong max = new AtomicLong();            // nanoseconds
+
+        private Histogram(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** Records one latency */
+        public void record(long nanos) {
+            if(nanos < 0) nanos = 0;
+            counts.incrementAndGet(index(nanos));
+            count.increment();
+            total.add(nanos);
+            if(nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        /** Mean latency, in nanoseconds */
+        public double getMean() {
+            long n = count.sum();
+            return n == 0 ? 0 : total.sum() / (double) n;
+        }
+
+        /** Largest latency recorded, in nanoseconds */
+        public long getMax() {
+            return max.get();
+        }
+
+        /** Latency (in nanoseconds, to within a bucket) that percentile percent of the recorded ones are at or under */
+        public long getPercentile(double percentile) {
+            long n = count.sum();
+            if(n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+            long seen = 0;
+            for(int i = 0; i < buckets; i++) {
+                seen += counts.get(i);
+                if(seen >= rank) return Math.min(highest(i), max.get());
+            }
+            return max.get();
+        }
+
+        public void reset() {
+            for(int i = 0; i < buckets; i++) counts.set(i, 0);
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+
+        /** Helper Method: bucket of a value, linear below 2 * sub, then sub buckets per power of two */
+        private static int index(long value) {
+            if(value < 2 * sub) return (int) value;
+            int shift = 64 - Long.numberOfLeadingZeros(value) - (subBits + 1);
+            return 2 * sub + (shift - 1) * sub + (int) ((value >>> shift) - sub);
+        }
+
+        /** Helper Method: largest value that falls in bucket i */
+        private static long highest(int i) {
+            if(i < 2 * sub) return i;
+            int shift = (i - 2 * sub) / sub + 1;
+            long top = (i - 2 * sub) % sub + sub;
+            return ((top + 1) << shift) - 1;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d, mean %.2f ms, p50 %.2f ms, p99 %.2f ms, max %.2f ms", name, getCount(),
+                    getMean() / 1e6, getPercentile(50) / 1e6, getPercentile(99) / 1e6, getMax() / 1e6);
+        }
+    }
+}
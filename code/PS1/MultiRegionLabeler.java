@@ -0,0 +1,179 @@
+/**
+ * MultiRegionLabeler
+ * Connected-component labeling for several target colors in the same pass over the image, for tracking a few colored
+ * markers at once without scanning the frame once per marker. Each pixel is tested against the targets in order and
+ * belongs to the first one it matches (its class), and two neighboring pixels only join when they have the same class,
+ * so regions of different targets never merge even where they touch. The regions found are then split up by target.
+ *
+ * Same connectivity, minRegion and labels as RegionLabeler, so getPoints and getSpans work on any of the regions.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.util.*;
+
+public class MultiRegionLabeler extends RegionLabeler {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private ColorMatcher[] targets;                         // color test of each target, in order of priority
+    private byte[] classes;                                 // target index + 1 of each pixel, 0 for pixels that match none
+    private byte[] labelClass;                              // target index + 1 of each label
+    private byte[] componentClass;                          // target index + 1 of each component
+    private ArrayList<ArrayList<RegionStats>> targetRegions; // regions of the last labeling, split up by target
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public MultiRegionLabeler(int maxColorDiff, int minRegion) {
+        super(maxColorDiff, minRegion);
+        this.targets = new ColorMatcher[0];
+        this.targetRegions = new ArrayList<ArrayList<RegionStats>>();
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    /** Returns the regions of the given target (its index in the last label call) with at least minRegion pixels */
+    public ArrayList<RegionStats> getRegions(int target) {
+        return targetRegions.get(target);
+    }
+
+    /** Returns which target (index in the last label call) the region, from getRegions, belongs to */
+    public int getTarget(RegionStats region) {
+        return componentClass[region.getLabel() - 1] - 1;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Labels the regions of every target color at once, keeping the matchers of targets that didn't change */
+    public void label(Color[] targetColors) {
+        if(targetColors.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("At most " + Byte.MAX_VALUE + " targets, not " + targetColors.length);
+        }
+        ColorMatcher[] matchers = new ColorMatcher[targetColors.length];
+        for(int t = 0; t < targetColors.length; t++) {
+            matchers[t] = ColorMatcher.reuse(t < targets.length ? targets[t] : null, targetColors[t], maxColorDiff, 'e');
+        }
+        label(matchers);
+    }
+
+    /** Labels the regions of pixels accepted by each of the matchers at once, over the whole image */
+    public void label(ColorMatcher[] matchers) {
+        label(matchers, new Rectangle(0, 0, width, height));
+    }
+
+    /** Labels the regions of pixels accepted by each of the matchers at once, inside the window */
+    public void label(ColorMatcher[] matchers, Rectangle window) {
+        this.targets = matchers;
+        this.test = null;
+        this.mask = null;
+        int n = width * height;
+        if(classes == null || classes.length < n) {
+            classes = new byte[n];
+            labelClass = new byte[n + 1];
+            componentClass = new byte[n + 1];
+        }
+        labelWindow(window);
+    }
+
+    /**
+     * First pass, as in RegionLabeler, but classifying each pixel by the first target it matches
+     * and only joining neighbors of the same class
+     */
+    @Override
+    protected int labelRows(int y0, int y1, int nextLabel) {
+        if(test != null || mask != null) { // a single target labeling, through RegionLabeler's own label calls
+            return super.labelRows(y0, y1, nextLabel);
+        }
+        int count = targets.length;
+        for(int y = y0; y < y1; y++) {
+            int row = y * width;
+            for(int x = x0; x < x1; x++) {
+                int i = row + x;
+                int rgb = pixels[i];
+                byte k = 0;
+                for(int t = 0; t < count; t++) {
+                    if(targets[t].matches(rgb)) {
+                        k = (byte) (t + 1);
+                        break;
+                    }
+                }
+                classes[i] = k;
+                if(k == 0) {
+                    labels[i] = 0;
+                    continue;
+                }
+                int l = 0;
+                if(x > x0 && classes[i - 1] == k) l = join(l, labels[i - 1]); // west
+                if(y > y0) { // the row above, as long as it is one of ours
+                    int up = i - width;
+                    if(x > x0 && classes[up - 1] == k) l = join(l, labels[up - 1]);
+                    if(classes[up] == k) l = join(l, labels[up]);
+                    if(x < x1 - 1 && classes[up + 1] == k) l = join(l, labels[up + 1]);
+                }
+                if(l == 0) { // no labeled neighbors of this class, so this starts a new label
+                    l = nextLabel++;
+                    parent[l] = l;
+                    labelClass[l] = k;
+                }
+                labels[i] = l;
+            }
+        }
+        return nextLabel;
+    }
+
+    /** Numbers the components as RegionLabeler does, and gives each the class of its root label */
+    @Override
+    protected void resolveLabels(int from, int to) {
+        super.resolveLabels(from, to);
+        if(test != null || mask != null) return;
+        for(int l = from; l < to; l++) {
+            if(parent[l] == l) componentClass[compact[l]] = labelClass[l];
+        }
+    }
+
+    /** Keeps the regions with at least minRegion pixels, and splits them up by target */
+    @Override
+    protected void keepRegions(Totals t) {
+        super.keepRegions(t);
+        if(test != null || mask != null) { // not split up by target, so no targets
+            targets = new ColorMatcher[0];
+        }
+        targetRegions = new ArrayList<ArrayList<RegionStats>>();
+        for(int target = 0; target < targets.length; target++) {
+            targetRegions.add(new ArrayList<RegionStats>());
+        }
+        if(targets.length == 0) return;
+        for(RegionStats region : regions) {
+            targetRegions.get(getTarget(region)).add(region);
+        }
+    }
+
+    /** Returns the largest region of the given target from the last labeling, or null if it has none */
+    public RegionStats largestRegion(int target) {
+        RegionStats largestRegion = null;
+        for(RegionStats region : targetRegions.get(target)) {
+            if(largestRegion == null || region.getSize() > largestRegion.getSize()) {
+                largestRegion = region;
+            }
+        }
+        return largestRegion;
+    }
+}
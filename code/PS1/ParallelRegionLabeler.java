@@ -0,0 +1,216 @@
+/**
+ * ParallelRegionLabeler
+ * Connected-component labeling (see RegionLabeler) split across cores. The image is cut into horizontal tiles of rows,
+ * and each tile is labeled on a ForkJoinPool as if it were its own image, handing out labels from its own range
+ * (starting at the index of its first pixel) so that tiles never touch each other's part of the union-find.
+ * Components that cross a seam between two tiles are then merged by one union-find pass over the seam rows, and the
+ * per component totals are counted up per tile in parallel and added together.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ParallelRegionLabeler extends RegionLabeler {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private int tiles;                          // how many horizontal tiles to split the image into
+    private ForkJoinPool pool;                  // runs the tiles
+    private Totals[] tileTotals;                // per tile totals, kept between images
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    /** One tile per core, on the common pool */
+    public ParallelRegionLabeler(int maxColorDiff, int minRegion) {
+        this(maxColorDiff, minRegion, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelRegionLabeler(int maxColorDiff, int minRegion, int tiles) {
+        super(maxColorDiff, minRegion);
+        this.pool = ForkJoinPool.commonPool();
+        setTiles(tiles);
+    }
+
+    /**
+     * GETTERS AND SETTERS
+     * --------------------
+     */
+
+    public int getTiles() {
+        return tiles;
+    }
+
+    public void setTiles(int tiles) {
+        if(tiles < 1) {
+            throw new IllegalArgumentException("Need at least one tile, not " + tiles);
+        }
+        this.tiles = tiles;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Labels the connected regions (8-neighbor) of pixels similar enough to the targetColor, tile by tile in parallel,
+     * and sets regions to the stats of those with at least minRegion pixels (exactly the same result as RegionLabeler)
+     */
+    @Override
+    protected void labelWindow(Rectangle window) {
+        Rectangle w = window.intersection(new Rectangle(0, 0, width, height));
+        x0 = w.x;
+        x1 = w.x + Math.max(w.width, 0);
+        int rows = Math.max(w.height, 0);
+        int count = Math.max(1, Math.min(tiles, rows));   // no empty tiles
+        int[] tileStart = new int[count + 1];              // first row of each tile, and the end of the last one
+        for(int t = 0; t <= count; t++) {
+            tileStart[t] = w.y + (int) ((long) rows * t / count);
+        }
+        int[] tileNextLabel = new int[count];
+
+        // First pass, each tile on its own with labels starting at the index of its first pixel
+        runTiles(count, t -> tileNextLabel[t] = labelRows(tileStart[t], tileStart[t + 1], tileStart[t] * width + 1));
+
+        // Merge the components that cross the seam at the top of each tile with those of the tile above
+        for(int t = 1; t < count; t++) {
+            mergeSeam(tileStart[t]);
+        }
+
+        // Number the components, tile by tile in increasing label order (roots are always the smallest label)
+        components = 0;
+        for(int t = 0; t < count; t++) {
+            resolveLabels(tileStart[t] * width + 1, tileNextLabel[t]);
+        }
+
+        // Second pass, counting each tile into its own totals, then adding them up
+        if(tileTotals == null || tileTotals.length < count) {
+            tileTotals = new Totals[count];
+            for(int t = 0; t < count; t++) tileTotals[t] = new Totals();
+        }
+        runTiles(count, t -> {
+            tileTotals[t].clear(components);
+            countRows(tileStart[t], tileStart[t + 1], tileTotals[t]);
+        });
+        totals.clear(components);
+        for(int t = 0; t < count; t++) {
+            totals.addAll(tileTotals[t], components);
+        }
+        keepRegions(totals);
+    }
+
+    /** Helper Method: unions every labeled pixel in row y with its labeled neighbors in row y - 1 */
+    private void mergeSeam(int y) {
+        int row = y * width;
+        for(int x = x0; x < x1; x++) {
+            int i = row + x;
+            if(labels[i] == 0) continue;
+            int up = i - width;
+            if(x > x0 && labels[up - 1] != 0) union(labels[i], labels[up - 1]);
+            if(labels[up] != 0) union(labels[i], labels[up]);
+            if(x < x1 - 1 && labels[up + 1] != 0) union(labels[i], labels[up + 1]);
+        }
+    }
+
+    /** Helper Method: runs work on each tile on the pool, and waits for all of them */
+    private void runTiles(int count, TileWork work) {
+        ArrayList<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+        for(int t = 0; t < count; t++) {
+            int tile = t;
+            tasks.add(new RecursiveAction() {
+                protected void compute() {
+                    work.run(tile);
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction() {
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Correctness check: labels the image in parallel and with the sequential RegionLabeler,
+     * and returns whether both found exactly the same regions and the same label for every pixel
+     */
+    public boolean matchesSequential(BufferedImage image, Color targetColor) {
+        setImage(image);
+        label(targetColor);
+        RegionLabeler sequential = new RegionLabeler(maxColorDiff, minRegion);
+        sequential.setImage(image);
+        sequential.label(targetColor);
+        if(!regions.equals(sequential.regions)) {
+            return false;
+        }
+        return Arrays.equals(labels, 0, width * height, sequential.labels, 0, width * height);
+    }
+
+    /**
+     * RUNNER
+     * --------------------
+     */
+
+    /**
+     * Checks the parallel labeling against the sequential one on a synthetic 4K frame of random blobs,
+     * and times both for a few tile counts (or on the image and tile count given as arguments)
+     */
+    public static void main(String[] args) {
+        BufferedImage image;
+        Color target = new Color(0, 0, 0);
+        if(args.length > 0) {
+            image = DrawingGUI.loadImage(args[0]);
+        } else {
+            image = new BufferedImage(3840, 2160, BufferedImage.TYPE_INT_RGB);
+            Graphics g = image.getGraphics();
+            g.setColor(Color.white);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setColor(target);
+            Random random = new Random(10);
+            for(int i = 0; i < 2000; i++) { // blobs of every size, many of them crossing tile seams
+                int r = 1 + random.nextInt(40);
+                g.fillOval(random.nextInt(image.getWidth()), random.nextInt(image.getHeight()), r * 2, r * 2);
+            }
+            g.dispose();
+        }
+
+        int[] tileCounts = args.length > 1 ? new int[]{Integer.parseInt(args[1])} : new int[]{1, 2, 4, 8, 16, 64};
+        RegionLabeler sequential = new RegionLabeler(30, 30);
+        sequential.setImage(image);
+        long start = System.nanoTime();
+        for(int i = 0; i < 10; i++) sequential.label(target);
+        System.out.println("sequential: " + sequential.getRegions().size() + " regions, "
+                + (System.nanoTime() - start) / 10 / 1000000.0 + " ms");
+
+        for(int tiles : tileCounts) {
+            ParallelRegionLabeler parallel = new ParallelRegionLabeler(30, 30, tiles);
+            boolean same = parallel.matchesSequential(image, target);
+            start = System.nanoTime();
+            for(int i = 0; i < 10; i++) parallel.label(target);
+            System.out.println(tiles + " tiles: " + parallel.getRegions().size() + " regions, "
+                    + (System.nanoTime() - start) / 10 / 1000000.0 + " ms, same as sequential: " + same);
+        }
+    }
+
+    /**
+     * PRIVATE INTERFACE
+     *
+     * TileWork
+     * Something to do with one tile, given its number
+     */
+
+    private interface TileWork {
+        void run(int tile);
+    }
+}
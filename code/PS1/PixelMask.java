@@ -0,0 +1,168 @@
+/**
+ * PixelMask
+ * One bit per pixel of an image, set for the pixels that match a target color, so that the region finding engines
+ * can do their color tests once up front (as a fast pass over whole rows) and then only look at bits.
+ * Each row starts on a fresh long, so a row is a run of whole words that can be worked on 64 pixels at a time.
+ *
+ * The mask is built by a vectorized builder (VectorMaskBuilder, using jdk.incubator.vector) when that class and
+ * module are available and the matcher is one it can handle, and by a plain scalar loop otherwise. VectorMaskBuilder
+ * is kept in vector/ and compiled separately with the module, so the rest of PS1 builds on a stock javac.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.util.*;
+
+public class PixelMask {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final int width, height;            // size of the image the mask is for
+    private final int stride;                   // longs per row
+    private final long[] bits;                  // bit x of row y is bit (x % 64) of bits[y * stride + x / 64]
+
+    private static final MaskBuilder vectorBuilder = loadVectorBuilder(); // null if the Vector API isn't there
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    /** Creates an empty mask for an image of the given size */
+    public PixelMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stride = (width + 63) >>> 6;
+        this.bits = new long[stride * height];
+    }
+
+    /**
+     * GETTERS AND SETTERS
+     * --------------------
+     */
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Number of longs per row */
+    public int getStride() {
+        return stride;
+    }
+
+    /** The words of the mask, row after row, for code that works on 64 pixels at a time */
+    public long[] getWords() {
+        return bits;
+    }
+
+    public boolean get(int x, int y) {
+        return (bits[y * stride + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y) {
+        bits[y * stride + (x >>> 6)] |= 1L << x;
+    }
+
+    /** ORs the low count bits of value into row y, starting at column x */
+    public void setBits(int x, int y, long value, int count) {
+        if(count < 64) value &= (1L << count) - 1;
+        int word = y * stride + (x >>> 6);
+        int offset = x & 63;
+        bits[word] |= value << offset;
+        if(offset != 0 && offset + count > 64) { // spills into the next word
+            bits[word + 1] |= value >>> (64 - offset);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+    /** Number of set pixels */
+    public int count() {
+        int count = 0;
+        for(long word : bits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /** Whether masks are being built with the Vector API */
+    public static boolean isVectorized() {
+        return vectorBuilder != null;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Sets the mask to the pixels (packed RGB, row by row) that the matcher accepts.
+     * Reuses mask if it has the right size, otherwise returns a new one.
+     */
+    public static PixelMask build(int[] pixels, int width, int height, ColorMatcher matcher, PixelMask mask) {
+        if(mask == null || mask.width != width || mask.height != height) {
+            mask = new PixelMask(width, height);
+        } else {
+            mask.clear();
+        }
+        if(vectorBuilder != null && vectorBuilder.supports(matcher)) {
+            vectorBuilder.build(pixels, matcher, mask);
+        } else {
+            buildScalar(pixels, matcher, mask);
+        }
+        return mask;
+    }
+
+    /** Scalar mask builder: one matcher test per pixel, a word of the mask at a time */
+    public static void buildScalar(int[] pixels, ColorMatcher matcher, PixelMask mask) {
+        for(int y = 0; y < mask.height; y++) {
+            int row = y * mask.width;
+            int wordRow = y * mask.stride;
+            for(int w = 0; w < mask.stride; w++) {
+                int x0 = w << 6;
+                int x1 = Math.min(x0 + 64, mask.width);
+                long word = 0;
+                for(int x = x0; x < x1; x++) {
+                    if(matcher.matches(pixels[row + x])) {
+                        word |= 1L << x;
+                    }
+                }
+                mask.bits[wordRow + w] = word;
+            }
+        }
+    }
+
+    /** Helper Method: loads VectorMaskBuilder if it was compiled and jdk.incubator.vector is present at run time */
+    private static MaskBuilder loadVectorBuilder() {
+        try {
+            return (MaskBuilder) Class.forName("VectorMaskBuilder").getDeclaredConstructor().newInstance();
+        } catch(Throwable e) { // ClassNotFoundException if not compiled, NoClassDefFoundError if the module is missing
+            return null;
+        }
+    }
+
+    /**
+     * INTERFACE
+     *
+     * MaskBuilder
+     * Something that can fill in a mask from pixels faster than one matcher test at a time, for some matchers
+     */
+
+    public interface MaskBuilder {
+        /** Whether this builder can handle the matcher */
+        boolean supports(ColorMatcher matcher);
+
+        /** Sets the bits of the (cleared) mask for the pixels the matcher accepts */
+        void build(int[] pixels, ColorMatcher matcher, PixelMask mask);
+    }
+}
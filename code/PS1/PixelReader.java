@@ -0,0 +1,90 @@
+/**
+ * PixelReader
+ * Gets the packed RGB pixels of an image as one int per pixel, row by row, copied into a buffer that belongs to this
+ * reader and is reused from frame to frame. Images that already store their pixels that way are copied a row at a
+ * time through their raster (getDataElements), and images over off-heap memory (DirectDataBuffer) straight from their
+ * buffer; anything else goes through getRGB. The image's own array is never taken: once its array has been handed
+ * out, Java2D stops accelerating an image for good, and these are the same frames that get drawn on screen.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+
+public class PixelReader {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private int[] buffer;                       // copied pixels, grown as needed but never shrunk
+    private byte[] row;                         // one row of an off-heap image's bytes, on its way into buffer
+    private int[] ints;                         // one row of a window of a packed int image, on its way into buffer
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Returns the pixels of the image, row by row (width * height of them, possibly in a longer array) */
+    public int[] read(BufferedImage image) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        if(buffer == null || buffer.length < w * h) {
+            buffer = new int[w * h];
+        }
+        if(isPackedInt(image)) { // already one int per pixel, so row copies (no color conversion)
+            image.getRaster().getDataElements(0, 0, w, h, buffer);
+            return buffer;
+        }
+        DirectDataBuffer offHeap = DirectDataBuffer.of(image);
+        if(offHeap != null) { // straight from the off-heap bytes, rather than pixel by pixel through getRGB
+            row = offHeap.readRGB(0, 0, w, h, buffer, w, row);
+            return buffer;
+        }
+        return image.getRGB(0, 0, w, h, buffer, 0, w);
+    }
+
+    /**
+     * Same as read(image), but only the pixels inside the window are read (the rest of the array is left as it was),
+     * for when only part of the frame will be looked at
+     */
+    public int[] read(BufferedImage image, Rectangle window) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        if(buffer == null || buffer.length < w * h) {
+            buffer = new int[w * h];
+        }
+        Rectangle r = window.intersection(new Rectangle(0, 0, w, h));
+        DirectDataBuffer offHeap = DirectDataBuffer.of(image);
+        if(isPackedInt(image) && !r.isEmpty()) { // a row of the window at a time, then into place in the buffer
+            if(ints == null || ints.length < r.width) {
+                ints = new int[r.width];
+            }
+            WritableRaster raster = image.getRaster();
+            for(int y = r.y; y < r.y + r.height; y++) {
+                raster.getDataElements(r.x, y, r.width, 1, ints);
+                System.arraycopy(ints, 0, buffer, y * w + r.x, r.width);
+            }
+        } else if(offHeap != null && !r.isEmpty()) {
+            row = offHeap.readRGB(r.x, r.y, r.x + r.width, r.y + r.height, buffer, w, row);
+        } else if(!r.isEmpty()) {
+            image.getRGB(r.x, r.y, r.width, r.height, buffer, r.y * w + r.x, w);
+        }
+        return buffer;
+    }
+
+    /**
+     * Whether the image stores exactly one packed RGB int per pixel, so its raster's data elements
+     * are the pixels as read() returns them
+     */
+    public static boolean isPackedInt(BufferedImage image) {
+        int type = image.getType();
+        return (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && image.getRaster().getDataBuffer() instanceof DataBufferInt
+                && image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel;
+    }
+}
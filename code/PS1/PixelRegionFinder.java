@@ -0,0 +1,315 @@
+/**
+ * PixelRegionFinder
+ * A region finding engine that works straight on the packed int pixels of an image instead of on Color and Point
+ * objects. Visited pixels are tracked in a bitset (one bit per pixel) and the flood fill uses a reusable primitive
+ * stack, so after the first frame findRegions allocates nothing but the regions it returns. Regions are compact
+ * arrays of pixel indices (y * width + x), which can be turned back into lists of Points with toPoints().
+ *
+ * findSpanRegions instead grows regions with a scanline fill, a whole horizontal run of pixels at a time, and
+ * produces them as SpanRegions.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+public class PixelRegionFinder {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final int maxColorDiff;             // how similar a pixel color must be to the target color, to belong to a region
+    private final int minRegion;                // how many points in a region to be worth considering
+
+    private int width, height;                  // size of the current image
+    private int[] pixels;                       // packed RGB pixels of the current image, row by row
+    private PixelReader reader;                 // reads the pixels, reusing its buffer from frame to frame
+    private long[] visited;                     // bitset, bit i is set once pixel i has been added to a region
+    private IntStack toVisit;                   // pixels waiting to be grown from, reused for every region
+    private IntStack regionPixels;              // pixels of the region currently being grown, reused for every region
+    private ColorMatcher matcher;               // color test for the last target color, kept while the target stays the same
+    private ColorMatcher test;                  // color test of the current findRegions, null when it is consulting a mask
+    private PixelMask mask;                     // matching pixels of the current findRegions, null when it is testing colors
+
+    private IntStack spans;                     // runs of the region currently being scanline filled, reused for every region
+
+    private ArrayList<int[]> regions;           // a region is an array of pixel indices
+    private ArrayList<SpanRegion> spanRegions;  // regions found by the last findSpanRegions
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public PixelRegionFinder(int maxColorDiff, int minRegion) {
+        this.maxColorDiff = maxColorDiff;
+        this.minRegion = minRegion;
+        this.reader = new PixelReader();
+        this.toVisit = new IntStack();
+        this.regionPixels = new IntStack();
+        this.spans = new IntStack();
+        this.regions = new ArrayList<int[]>();
+        this.spanRegions = new ArrayList<SpanRegion>();
+    }
+
+    /**
+     * GETTERS AND SETTERS
+     * --------------------
+     */
+
+    /** Reads the pixels of the image, reusing the buffers of the previous image whenever they are big enough */
+    public void setImage(BufferedImage image) {
+        setSize(image.getWidth(), image.getHeight());
+        this.pixels = reader.read(image);
+    }
+
+    /** Helper Method: sets the image size, making sure the visited bitset is big enough for it */
+    private void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int words = (width * height + 63) >>> 6;
+        if(visited == null || visited.length < words) {
+            visited = new long[words];
+        }
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public ArrayList<int[]> getRegions() {
+        return regions;
+    }
+
+    public ArrayList<SpanRegion> getSpanRegions() {
+        return spanRegions;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Sets regions to the flood-fill regions in the image, similar enough to the targetColor
+     * (same 8-neighbor connectivity and color test as RegionFinder)
+     */
+    public void findRegions(Color targetColor) {
+        matcher = ColorMatcher.reuse(matcher, targetColor, maxColorDiff, 'e');
+        findRegions(matcher);
+    }
+
+    /**
+     * Sets regions to the flood-fill regions in the image of pixels accepted by the matcher
+     */
+    public void findRegions(ColorMatcher matcher) {
+        this.test = matcher;
+        this.mask = null;
+        fill();
+    }
+
+    /**
+     * Sets regions to the flood-fill regions of the pixels set in the mask, without looking at any colors
+     * (no setImage needed, the mask gives the size)
+     */
+    public void findRegions(PixelMask mask) {
+        setSize(mask.getWidth(), mask.getHeight());
+        this.test = null;
+        this.mask = mask;
+        fill();
+    }
+
+    /** Helper Method: grows a region from every matching pixel that isn't in a region yet */
+    private void fill() {
+        regions = new ArrayList<int[]>();
+        Arrays.fill(visited, 0L); // nothing visited yet
+
+        for(int y = 0; y < height; y++) { // loop through all of the pixels in the image, row by row
+            for(int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if(!isVisited(i) && accepts(x, y, i)) {
+                    growRegion(i);
+                    if(regionPixels.size() >= minRegion) { // if the region is larger than the min size, keep it
+                        regions.add(regionPixels.toArray());
+                    }
+                }
+            }
+        }
+    }
+
+    /** Helper Method: whether pixel (x, y), which is index i, belongs in a region */
+    private boolean accepts(int x, int y, int i) {
+        return mask != null ? mask.get(x, y) : test.matches(pixels[i]);
+    }
+
+    /** Helper Method: flood fills from the seed pixel, leaving the pixels of the region in regionPixels */
+    private void growRegion(int seed) {
+        regionPixels.clear();
+        toVisit.clear();
+        toVisit.push(seed);
+        setVisited(seed);
+
+        while(!toVisit.isEmpty()) { // as long as there are still pixels to grow from
+            int p = toVisit.pop();
+            regionPixels.push(p);
+            int x = p % width;
+            int y = p / width;
+            int xMin = Math.max(x - 1, 0), xMax = Math.min(x + 1, width - 1); // clip the 3x3 neighborhood to the image
+            int yMin = Math.max(y - 1, 0), yMax = Math.min(y + 1, height - 1);
+            for(int ny = yMin; ny <= yMax; ny++) {
+                int row = ny * width;
+                for(int nx = xMin; nx <= xMax; nx++) {
+                    int q = row + nx;
+                    if(!isVisited(q) && accepts(nx, ny, q)) { // the pixel itself is already visited, so it is skipped here
+                        setVisited(q);
+                        toVisit.push(q);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets spanRegions to the regions in the image similar enough to the targetColor, grown by a scanline fill
+     * (same 8-neighbor connectivity and color test as findRegions)
+     */
+    public void findSpanRegions(Color targetColor) {
+        matcher = ColorMatcher.reuse(matcher, targetColor, maxColorDiff, 'e');
+        findSpanRegions(matcher);
+    }
+
+    /** Sets spanRegions to the scanline-fill regions of pixels accepted by the matcher */
+    public void findSpanRegions(ColorMatcher matcher) {
+        this.test = matcher;
+        this.mask = null;
+        spanFill();
+    }
+
+    /** Sets spanRegions to the scanline-fill regions of the pixels set in the mask (no setImage needed) */
+    public void findSpanRegions(PixelMask mask) {
+        setSize(mask.getWidth(), mask.getHeight());
+        this.test = null;
+        this.mask = mask;
+        spanFill();
+    }
+
+    /** Helper Method: scanline fills a region from every matching pixel that isn't in a region yet */
+    private void spanFill() {
+        spanRegions = new ArrayList<SpanRegion>();
+        Arrays.fill(visited, 0L); // nothing visited yet
+
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if(!isVisited(i) && accepts(x, y, i)) {
+                    if(growSpans(i) >= minRegion) { // if the region is larger than the min size, keep it
+                        spanRegions.add(new SpanRegion(spans.toArray(), spans.size() / 3));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper Method: scanline fill from the seed pixel. Each seed is widened to the whole run of matching pixels
+     * in its row, and then only the rows above and below the run (one pixel wider on each side, for the diagonal
+     * neighbors) are looked at, with one new seed per run found there. Leaves the runs in spans; returns the size.
+     */
+    private int growSpans(int seed) {
+        spans.clear();
+        toVisit.clear();
+        toVisit.push(seed);
+        int size = 0;
+
+        while(!toVisit.isEmpty()) {
+            int p = toVisit.pop();
+            if(isVisited(p)) continue; // its run was filled from another seed in the meantime
+            int y = p / width;
+            int row = y * width;
+            int x1 = p - row, x2 = x1;
+            while(x1 > 0 && !isVisited(row + x1 - 1) && accepts(x1 - 1, y, row + x1 - 1)) x1--; // widen the run
+            while(x2 < width - 1 && !isVisited(row + x2 + 1) && accepts(x2 + 1, y, row + x2 + 1)) x2++;
+            for(int x = x1; x <= x2; x++) {
+                setVisited(row + x);
+            }
+            spans.push(y);
+            spans.push(x1);
+            spans.push(x2);
+            size += x2 - x1 + 1;
+
+            int xMin = Math.max(x1 - 1, 0), xMax = Math.min(x2 + 1, width - 1);
+            if(y > 0) seedRow(y - 1, xMin, xMax);
+            if(y < height - 1) seedRow(y + 1, xMin, xMax);
+        }
+        return size;
+    }
+
+    /** Helper Method: pushes one seed for each run of unvisited matching pixels in row y between xMin and xMax */
+    private void seedRow(int y, int xMin, int xMax) {
+        int row = y * width;
+        boolean inRun = false;
+        for(int x = xMin; x <= xMax; x++) {
+            int q = row + x;
+            if(!isVisited(q) && accepts(x, y, q)) {
+                if(!inRun) toVisit.push(q);
+                inRun = true;
+            } else {
+                inRun = false;
+            }
+        }
+    }
+
+    private boolean isVisited(int i) {
+        return (visited[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private void setVisited(int i) {
+        visited[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Returns the largest region detected (if any region has been detected)
+     */
+    public int[] largestRegion() {
+        int[] largestRegion = null;
+        for(int[] region : regions) {
+            if(largestRegion == null || region.length > largestRegion.length) {
+                largestRegion = region;
+            }
+        }
+        return largestRegion;
+    }
+
+    /**
+     * Returns the largest region found by the last findSpanRegions (null if there are none)
+     */
+    public SpanRegion largestSpanRegion() {
+        SpanRegion largestRegion = null;
+        for(SpanRegion region : spanRegions) {
+            if(largestRegion == null || region.size() > largestRegion.size()) {
+                largestRegion = region;
+            }
+        }
+        return largestRegion;
+    }
+
+    /**
+     * Adapter: turns a region of pixel indices back into the list of Points used by RegionFinder
+     */
+    public static ArrayList<Point> toPoints(int[] region, int width) {
+        ArrayList<Point> points = new ArrayList<Point>(region.length);
+        for(int p : region) {
+            points.add(new Point(p % width, p / width));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * PyramidFinder
+ * Coarse-to-fine search for just the largest region of a target color, for CamPaint, which only needs the brush.
+ * The frame is downsampled by 2 or 4 in each direction, each coarse pixel the average of the 2x2 pixels at the center
+ * of its block, straight from the frame's raster. Rows are read whole, one getDataElements call per pair, so a 2x level
+ * reads every row of the frame and a 4x level 2 rows of every 4, half the frame (reading just the 2 columns of every 4
+ * it averages would take a call per block: on a 720p webcam frame at 4x, about 2.4 ms against 1.6 ms for whole rows).
+ * The coarse level is labeled whole, which is 4 or 16 times less work than the full frame, and only the largest
+ * candidate found there is refined: just the pixels inside the candidate's bounding box, scaled back up and grown by a
+ * margin, are read and labeled at full resolution.
+ *
+ * If the refined region runs into the edge of that window, the window is grown around it once, and if it still
+ * doesn't fit the full frame is labeled (counted as a fallback). Regions too small or thin to survive the averaging
+ * may be missed at the coarse level.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+
+public class PyramidFinder {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final int factor;                   // how much the searched level is shrunk, 2 or 4
+    private final int margin;                   // how many full resolution pixels to grow the candidate's window by
+
+    private PixelReader reader;                 // reads the frame's pixels, reusing its buffer
+    private int[] level;                        // the downsampled frame, reused between frames
+    private int[] rows;                         // the two rows of an int-packed frame a coarse row is averaged from
+    private byte[] rowBytes;                    // the same, for a 3-byte BGR frame
+    private RegionLabeler coarse;               // labels the coarse level
+    private RegionLabeler fine;                 // labels the window at full resolution
+
+    private long refined;                       // frames resolved from the coarse candidate's window
+    private long fallbacks;                     // frames that needed the whole full resolution frame labeled
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public PyramidFinder(int maxColorDiff, int minRegion, int factor) {
+        if(factor != 2 && factor != 4) {
+            throw new IllegalArgumentException("Pyramid factor must be 2 or 4, not " + factor);
+        }
+        this.factor = factor;
+        this.margin = 2 * factor; // covers what the averaging can shave off a region's edges
+        this.reader = new PixelReader();
+        this.coarse = new RegionLabeler(maxColorDiff, Math.max(1, minRegion / (factor * factor)));
+        this.fine = new RegionLabeler(maxColorDiff, minRegion);
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    public int getFactor() {
+        return factor;
+    }
+
+    /** The full resolution labeler, holding the region returned by the last find (for getPoints or getSpans) */
+    public RegionLabeler getLabeler() {
+        return fine;
+    }
+
+    public long getRefined() {
+        return refined;
+    }
+
+    public long getFallbacks() {
+        return fallbacks;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Finds the largest region of pixels accepted by the matcher. Returns its stats (in the full resolution labeler,
+     * see getLabeler), or null if the coarse level has no candidate.
+     */
+    public RegionStats find(BufferedImage image, ColorMatcher matcher) {
+        int width = image.getWidth(), height = image.getHeight();
+        int cw = width / factor, ch = height / factor;
+        level = downsample(image, level, cw, ch);
+        coarse.setPixels(level, cw, ch);
+        coarse.label(matcher);
+        RegionStats candidate = coarse.largestRegion();
+        if(candidate == null) return null;
+
+        Rectangle frame = new Rectangle(0, 0, width, height);
+        Rectangle window = new Rectangle(candidate.getMinX() * factor, candidate.getMinY() * factor,
+                (candidate.getMaxX() - candidate.getMinX() + 1) * factor, (candidate.getMaxY() - candidate.getMinY() + 1) * factor);
+        window.grow(margin, margin);
+        window = window.intersection(frame);
+
+        RegionStats region = findInWindow(image, matcher, window, frame);
+        if(region == null) { // ran off the window, so give it one bigger window
+            RegionStats partial = fine.largestRegion();
+            if(partial != null) {
+                Rectangle bigger = partial.getBounds();
+                bigger.grow(margin * 4, margin * 4);
+                region = findInWindow(image, matcher, bigger.intersection(frame), frame);
+            }
+        }
+        if(region != null) {
+            refined++;
+            return region;
+        }
+        fallbacks++;
+        fine.setPixels(reader.read(image), width, height);
+        fine.label(matcher);
+        return fine.largestRegion();
+    }
+
+    /**
+     * Helper Method: labels just the window at full resolution, and returns the largest region in it,
+     * unless there is none or it touches an edge of the window that isn't an edge of the frame
+     */
+    private RegionStats findInWindow(BufferedImage image, ColorMatcher matcher, Rectangle w, Rectangle frame) {
+        fine.setPixels(reader.read(image, w), frame.width, frame.height);
+        fine.label(matcher, w);
+        RegionStats region = fine.largestRegion();
+        if(region == null) return null;
+        if((region.getMinX() == w.x && w.x > 0)
+                || (region.getMinY() == w.y && w.y > 0)
+                || (region.getMaxX() == w.x + w.width - 1 && w.x + w.width < frame.width)
+                || (region.getMaxY() == w.y + w.height - 1 && w.y + w.height < frame.height)) {
+            return null; // cut off by the window, so it isn't the whole region
+        }
+        return region;
+    }
+
+    /**
+     * Helper Method: the coarse level, each pixel the channel-wise average of the 2x2 pixels at the center of its
+     * factor x factor block. Reads the two rows it needs of int-packed and 3-byte BGR (webcam) rasters through
+     * getDataElements (never taking the image's own array, so it stays accelerated), off-heap frames directly,
+     * anything else via getRGB. Reuses into when it is big enough.
+     */
+    private int[] downsample(BufferedImage image, int[] into, int cw, int ch) {
+        if(into == null || into.length < cw * ch) {
+            into = new int[cw * ch];
+        }
+        int width = image.getWidth();
+        int offset = factor / 2 - 1; // top left of the center 2x2 within a block
+        boolean ints = PixelReader.isPackedInt(image);
+        boolean bgr = !ints && isBGR(image);
+        DirectDataBuffer offHeap = !ints && !bgr ? DirectDataBuffer.of(image) : null;
+        if(ints && (rows == null || rows.length < 2 * width)) {
+            rows = new int[2 * width];
+        }
+        if(bgr && (rowBytes == null || rowBytes.length < 6 * width)) {
+            rowBytes = new byte[6 * width];
+        }
+        for(int y = 0; y < ch; y++) {
+            int top = (y * factor + offset) * width, out = y * cw;
+            if(ints) {
+                image.getRaster().getDataElements(0, y * factor + offset, width, 2, rows);
+            } else if(bgr) {
+                image.getRaster().getDataElements(0, y * factor + offset, width, 2, rowBytes);
+            }
+            for(int x = 0; x < cw; x++) {
+                int i = top + x * factor + offset;
+                int a, b, c, d;
+                if(ints) {
+                    int j = x * factor + offset;
+                    a = rows[j]; b = rows[j + 1]; c = rows[width + j]; d = rows[width + j + 1];
+                } else if(bgr) {
+                    int j = x * factor + offset;
+                    a = rgb(rowBytes, j); b = rgb(rowBytes, j + 1); c = rgb(rowBytes, width + j); d = rgb(rowBytes, width + j + 1);
+                } else if(offHeap != null) {
+                    int px = i % width, py = i / width;
+                    a = offHeap.getRGB(px, py); b = offHeap.getRGB(px + 1, py); c = offHeap.getRGB(px, py + 1); d = offHeap.getRGB(px + 1, py + 1);
+                } else {
+                    int px = i % width, py = i / width;
+                    a = image.getRGB(px, py); b = image.getRGB(px + 1, py); c = image.getRGB(px, py + 1); d = image.getRGB(px + 1, py + 1);
+                }
+                int rb = (a & 0xff00ff) + (b & 0xff00ff) + (c & 0xff00ff) + (d & 0xff00ff); // red and blue summed side by side
+                int g = (a & 0xff00) + (b & 0xff00) + (c & 0xff00) + (d & 0xff00);
+                into[out + x] = ((rb >> 2) & 0xff00ff) | ((g >> 2) & 0xff00);
+            }
+        }
+        return into;
+    }
+
+    /** Helper Method: whether the image is 3-byte BGR over a plain byte array, as webcam frames copied to the heap are */
+    private static boolean isBGR(BufferedImage image) {
+        return image.getType() == BufferedImage.TYPE_3BYTE_BGR
+                && image.getRaster().getDataBuffer() instanceof DataBufferByte
+                && image.getRaster().getSampleModel() instanceof PixelInterleavedSampleModel;
+    }
+
+    /** Helper Method: packed RGB of pixel i of data elements read from a 3-byte BGR raster (which come red first) */
+    private static int rgb(byte[] bytes, int i) {
+        int j = 3 * i;
+        return ((bytes[j] & 0xff) << 16) | ((bytes[j + 1] & 0xff) << 8) | (bytes[j + 2] & 0xff);
+    }
+
+    @Override
+    public String toString() {
+        return "pyramid " + factor + "x: " + refined + " refined, " + fallbacks + " fallbacks to a full frame";
+    }
+}
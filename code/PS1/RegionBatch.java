@@ -0,0 +1,233 @@
+/**
+ * RegionBatch
+ * Headless batch mode for region finding: runs over recorded footage (a raw frame file) or a directory of stills,
+ * without a GUI or a camera, and writes a summary of each frame's regions to a CSV file.
+ *
+ * Frames are labeled on a pool of worker threads. Each worker keeps its own RegionLabeler (and pixel buffer), so
+ * after the first few frames no per-frame buffers are allocated; raw frames are read into a small set of byte
+ * buffers that are passed back and forth between the reader and the workers.
+ *
+ * Usage: java RegionBatch input output.csv targetColor [threads] [width height]
+ *   input        a directory of images (png, jpg, ...), processed in file name order, or
+ *                a raw file of 24-bit RGB frames back to back (then width and height must be given)
+ *   targetColor  hex RGB, e.g. 000000 or ff8000
+ *
+ * Output, one line per frame: frame,name,regions,largest,boxes
+ * where boxes is the bounding box x:y:width:height of every region, separated by ';'.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.imageio.ImageIO;
+
+public class RegionBatch {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private static final int maxColorDiff = 30;             // same as RegionFinder
+    private static final int minRegion = 30;                // same as RegionFinder
+
+    private final Color targetColor;                        // color of the regions to find
+    private final int threads;                              // size of the worker pool
+    private final ExecutorService pool;                     // the workers
+    private final ThreadLocal<Worker> workers;              // each worker thread's own reusable buffers
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public RegionBatch(Color targetColor, int threads) {
+        this.targetColor = targetColor;
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Summarizes every image in the directory (in file name order) into out.
+     * Returns how many frames were processed.
+     */
+    public int runDirectory(File dir, PrintWriter out) throws Exception {
+        File[] files = dir.listFiles((d, name) -> name.matches("(?i).*\\.(png|jpe?g|bmp|gif)"));
+        if(files == null) {
+            throw new IOException("Couldn't list directory " + dir);
+        }
+        Arrays.sort(files);
+
+        ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        int frame = 0;
+        for(File file : files) {
+            int number = frame++;
+            pending.add(pool.submit(() -> {
+                BufferedImage image = ImageIO.read(file);
+                if(image == null) {
+                    throw new IOException("Couldn't read image " + file);
+                }
+                return workers.get().summarize(number, file.getName(), image);
+            }));
+            drain(pending, out, 2 * threads); // keep only a few frames in flight, so results don't pile up in memory
+        }
+        drain(pending, out, 0);
+        return frame;
+    }
+
+    /**
+     * Summarizes every frame of a raw file of 24-bit RGB frames, each width * height * 3 bytes, into out.
+     * Returns how many frames were processed. A file that isn't a whole number of frames (truncated, or the wrong
+     * frame size given) is an IOException, before any frame is processed.
+     */
+    public int runRaw(File file, int width, int height, PrintWriter out) throws Exception {
+        int frameBytes = width * height * 3;
+        long leftover = file.length() % frameBytes;
+        if(leftover != 0) {
+            throw new IOException(file + " is " + file.length() + " bytes, not a whole number of " + width + "x" + height
+                    + " frames (" + frameBytes + " bytes each): the last frame has only " + leftover + " bytes");
+        }
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(2 * threads + 1); // frame buffers, recycled
+        for(int i = 0; i < 2 * threads + 1; i++) {
+            buffers.add(new byte[frameBytes]);
+        }
+
+        ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        int frame = 0;
+        try(InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 20)) {
+            while(true) {
+                drain(pending, out, 2 * threads); // a buffer is only free again once its frame is done
+                byte[] buffer = buffers.take();
+                int read = readFrame(in, buffer);
+                if(read == 0) break; // no more frames
+                if(read < frameBytes) { // the file got shorter while being read
+                    throw new EOFException("Partial last frame " + frame + " in " + file + ": " + read + " of " + frameBytes + " bytes");
+                }
+                int number = frame++;
+                pending.add(pool.submit(() -> {
+                    try {
+                        return workers.get().summarize(number, file.getName(), buffer, width, height);
+                    } finally {
+                        buffers.add(buffer);
+                    }
+                }));
+            }
+        }
+        drain(pending, out, 0);
+        return frame;
+    }
+
+    /** Helper Method: reads as much of a frame as there is into buffer, returning how many bytes that was */
+    private static int readFrame(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while(read < buffer.length) {
+            int n = in.read(buffer, read, buffer.length - read);
+            if(n < 0) break;
+            read += n;
+        }
+        return read;
+    }
+
+    /** Helper Method: writes finished results in frame order until at most keep frames are still in flight */
+    private void drain(ArrayDeque<Future<String>> pending, PrintWriter out, int keep) throws Exception {
+        while(pending.size() > keep) {
+            out.println(pending.poll().get());
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * PRIVATE CLASS
+     *
+     * Worker
+     * One worker thread's labeler and pixel buffer, reused for every frame the thread processes
+     */
+
+    private class Worker {
+        private RegionLabeler labeler = new RegionLabeler(maxColorDiff, minRegion);
+        private ColorMatcher matcher = new ColorMatcher(targetColor, maxColorDiff, 'e');
+        private int[] pixels;                               // raw frames converted to packed RGB
+
+        /** Labels an image and returns its CSV line */
+        String summarize(int frame, String name, BufferedImage image) {
+            labeler.setImage(image);
+            labeler.label(matcher);
+            return line(frame, name);
+        }
+
+        /** Labels a raw 24-bit RGB frame and returns its CSV line */
+        String summarize(int frame, String name, byte[] rgb, int width, int height) {
+            int n = width * height;
+            if(pixels == null || pixels.length < n) {
+                pixels = new int[n];
+            }
+            for(int i = 0, j = 0; i < n; i++, j += 3) {
+                pixels[i] = ((rgb[j] & 0xff) << 16) | ((rgb[j + 1] & 0xff) << 8) | (rgb[j + 2] & 0xff);
+            }
+            labeler.setPixels(pixels, width, height);
+            labeler.label(matcher);
+            return line(frame, name);
+        }
+
+        /** Helper Method: frame,name,regions,largest,boxes for the last labeling */
+        private String line(int frame, String name) {
+            StringBuilder boxes = new StringBuilder();
+            for(RegionStats region : labeler.getRegions()) {
+                if(boxes.length() > 0) boxes.append(';');
+                Rectangle r = region.getBounds();
+                boxes.append(r.x).append(':').append(r.y).append(':').append(r.width).append(':').append(r.height);
+            }
+            RegionStats largest = labeler.largestRegion();
+            return frame + "," + name.replace(',', '_') + "," + labeler.getRegions().size() + ","
+                    + (largest == null ? 0 : largest.getSize()) + "," + boxes;
+        }
+    }
+
+    /**
+     * RUNNER
+     * --------------------
+     */
+
+    public static void main(String[] args) throws Exception {
+        if(args.length != 3 && args.length != 4 && args.length != 6) {
+            System.err.println("Usage: java RegionBatch input output.csv targetColor [threads] [width height]");
+            System.exit(-1);
+        }
+        File input = new File(args[0]);
+        Color target = new Color(Integer.parseInt(args[2], 16));
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        RegionBatch batch = new RegionBatch(target, threads);
+        long start = System.nanoTime();
+        int frames;
+        try(PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(args[1])))) {
+            out.println("frame,name,regions,largest,boxes");
+            if(input.isDirectory()) {
+                frames = batch.runDirectory(input, out);
+            } else if(args.length == 6) {
+                frames = batch.runRaw(input, Integer.parseInt(args[4]), Integer.parseInt(args[5]), out);
+            } else {
+                System.err.println("A raw frame file needs the frame width and height");
+                frames = 0;
+            }
+        } finally {
+            batch.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d frames in %.2f s on %d threads: %.1f frames per second%n", frames, seconds, threads, frames / seconds);
+    }
+}
@@ -0,0 +1,442 @@
+/**
+ * RegionBench
+ * Benchmark suite for region finding: times RegionFinder's findRegions (every engine, and pyramid mode at 2x and 4x,
+ * which only finds the largest region), largestRegion and recolorImage, and RegionFinderExtension's findRegions and
+ * recolorImage, on synthetic frames from VGA to 4K with varying amounts of matching color. Frames come in two scenes:
+ * blobs, the matching color split into a number of round regions (long runs, where the scanline fill does best), and
+ * speckle, the matching color scattered over single pixels at random (short runs, its worst case). Frames come from a
+ * seeded generator, so every run measures the same pixels.
+ *
+ * RegionFinderExtension.findRegionsMulti finds the regions of several target colors ('1': in one findRegions(Color[],
+ * Color[]) pass, 'n': one findRegions(Color, Color) per target), on frames whose blobs take turns between them. Before
+ * timing it checks that both ways recolor the frame the same, and stops with an IllegalStateException if they don't.
+ *
+ * Works like a (much smaller) JMH, without needing it on the class path: each benchmark and parameter combination
+ * gets warmup iterations, then measured iterations of repeated calls, reported as average time per call with a
+ * 99.9% confidence interval, and all results are written as JSON in JMH's result format so the usual tools for
+ * comparing JMH runs over time can read them.
+ *
+ * Usage: java RegionBench [regex] [-wi warmups] [-i iterations] [-r secondsPerIteration]
+ *                         [-p param=value,value ...] [-rff results.json]
+ *   regex      only run benchmarks whose name contains a match, e.g. findRegions or Extension
+ *   -p         override a parameter's values, e.g. -p size=vga,720p -p engine=s,l
+ *              params: size (vga, 720p, 1080p, 4k), scene (blobs, speckle), density (fraction of pixels that match),
+ *              regions (blobs only), engine
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.regex.*;
+
+public class RegionBench {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private static final Color target = new Color(20, 40, 200);     // color of the synthetic regions
+    private static final Color[] targets = {target, new Color(200, 40, 30), new Color(30, 170, 40),  // colors of the regions
+            new Color(210, 190, 30), new Color(190, 40, 190), new Color(30, 180, 190)};            // of frames with several
+    private static final Color paint = Color.red;                   // recolor color
+    private static final Color[] paints = {paint, Color.green, Color.yellow, Color.magenta, Color.cyan, Color.orange};
+    private static final int multiTargets = 4;                      // targets findRegionsMulti looks for
+    private static final long seed = 10;                            // generator seed, the same every run
+
+    private int warmups = 3;                                        // untimed iterations per combination
+    private int iterations = 5;                                     // measured iterations per combination
+    private double iterationSeconds = 1;                            // how long each iteration calls the benchmark for
+    private Pattern filter = Pattern.compile("");                   // which benchmarks to run
+    private String resultFile = "region-bench.json";
+
+    private LinkedHashMap<String, String[]> params = new LinkedHashMap<String, String[]>();   // parameter values to cross
+    private ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+    private ArrayList<String> results = new ArrayList<String>();    // JSON of each finished combination
+
+    public static volatile Object sink;                             // results are stored here so the JIT can't drop the calls
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public RegionBench() {
+        params.put("size", new String[]{"vga", "720p", "1080p", "4k"});
+        params.put("scene", new String[]{"blobs", "speckle"});
+        params.put("density", new String[]{"0.05", "0.3"});
+        params.put("regions", new String[]{"10", "200"});
+
+        add("RegionFinder.findRegions", new String[]{"b", "f", "s", "l", "t"}, (image, engine) -> {
+            RegionFinder finder = finder(image, engine);
+            return () -> {
+                finder.clearRegions();
+                finder.findRegions(target);
+                return finder;
+            };
+        });
+        add("RegionFinder.findRegionsPyramid", new String[]{"2", "4"}, (image, engine) -> { // scanline fill, coarse to fine
+            RegionFinder finder = finder(image, "s");
+            finder.setPyramid(engine.charAt(0) - '0');
+            return () -> {
+                finder.clearRegions();
+                finder.findRegions(target);
+                return finder;
+            };
+        });
+        add("RegionFinder.largestRegion", null, (image, engine) -> {
+            RegionFinder finder = finder(image, "f");
+            finder.findRegions(target);
+            return () -> {
+                finder.getLargestRegions().clear(); // it keeps every result, which would pile up
+                return finder.largestRegion();
+            };
+        });
+        add("RegionFinder.recolorImage", new String[]{"f", "s"}, (image, engine) -> { // regions as Points or as runs
+            RegionFinder finder = finder(image, engine);
+            finder.findRegions(target);
+            return () -> {
+                finder.recolorImage(paint);
+                return finder.getRecoloredImage();
+            };
+        });
+        add("RegionFinderExtension.findRegions", new String[]{"b", "l"}, (image, engine) -> {
+            RegionFinderExtension finder = new RegionFinderExtension(image);
+            finder.setEngine(engine.charAt(0));
+            return () -> {
+                finder.clearRegions();
+                finder.findRegions(target, paint);
+                return finder;
+            };
+        });
+        add("RegionFinderExtension.recolorImage", new String[]{"b", "l"}, (image, engine) -> {
+            RegionFinderExtension finder = new RegionFinderExtension(image);
+            finder.setEngine(engine.charAt(0));
+            finder.findRegions(target, paint);
+            return () -> {
+                finder.recolorImage();
+                return finder.getRecoloredImage();
+            };
+        });
+        add("RegionFinderExtension.findRegionsMulti", new String[]{"1", "n"}, multiTargets, (image, engine) -> {
+            Color[] colors = Arrays.copyOf(targets, multiTargets), paintColors = Arrays.copyOf(paints, multiTargets);
+            checkMulti(image, colors, paintColors);
+            RegionFinderExtension finder = new RegionFinderExtension(image);
+            finder.setEngine('l');
+            return () -> {
+                finder.clearRegions();
+                if(engine.equals("1")) {
+                    finder.findRegions(colors, paintColors);
+                } else {
+                    for(int t = 0; t < colors.length; t++) {
+                        finder.findRegions(colors[t], paintColors[t]);
+                    }
+                }
+                return finder;
+            };
+        });
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Helper Method: registers a benchmark, run once per engine if engines isn't null */
+    private void add(String name, String[] engines, Setup setup) {
+        add(name, engines, 1, setup);
+    }
+
+    /** Helper Method: registers a benchmark on frames with regions of the first colorCount targets */
+    private void add(String name, String[] engines, int colorCount, Setup setup) {
+        benchmarks.add(new Benchmark(name, engines, colorCount, setup));
+    }
+
+    /**
+     * Helper Method: checks that one multi-target findRegions finds the same regions as one findRegions per target,
+     * by the number of regions and by every pixel of the recolored frame
+     */
+    private static void checkMulti(BufferedImage image, Color[] colors, Color[] paintColors) {
+        RegionFinderExtension multi = new RegionFinderExtension(image);
+        multi.findRegions(colors, paintColors);
+        multi.recolorImage();
+        RegionFinderExtension single = new RegionFinderExtension(image);
+        single.setEngine('l');
+        for(int t = 0; t < colors.length; t++) {
+            single.findRegions(colors[t], paintColors[t]);
+        }
+        single.recolorImage();
+        BufferedImage a = multi.getRecoloredImage(), b = single.getRecoloredImage();
+        int differ = 0;
+        for(int y = 0; y < image.getHeight(); y++) {
+            for(int x = 0; x < image.getWidth(); x++) {
+                if(a.getRGB(x, y) != b.getRGB(x, y)) differ++;
+            }
+        }
+        if(differ > 0 || multi.getRegions().size() != single.getRegions().size()) {
+            throw new IllegalStateException("findRegions(Color[], Color[]) found " + multi.getRegions().size()
+                    + " regions, one findRegions per target " + single.getRegions().size() + ", recolored " + differ + " pixels differently");
+        }
+    }
+
+    /** Helper Method: a RegionFinder on the image, with the given engine */
+    private static RegionFinder finder(BufferedImage image, String engine) {
+        RegionFinder finder = new RegionFinder(image);
+        finder.setEngine(engine.charAt(0));
+        return finder;
+    }
+
+    /** Reads the command line options (see the class comment) */
+    public void parse(String[] args) {
+        for(int i = 0; i < args.length; i++) {
+            switch(args[i]) {
+                case "-wi": warmups = Integer.parseInt(args[++i]); break;
+                case "-i": iterations = Integer.parseInt(args[++i]); break;
+                case "-r": iterationSeconds = Double.parseDouble(args[++i]); break;
+                case "-rff": resultFile = args[++i]; break;
+                case "-p":
+                    String[] param = args[++i].split("=", 2);
+                    params.put(param[0], param[1].split(","));
+                    break;
+                default: filter = Pattern.compile(args[i]);
+            }
+        }
+        if(iterations < 1) {
+            throw new IllegalArgumentException("Need at least one measured iteration");
+        }
+    }
+
+    /** Runs every selected benchmark over every combination of parameters, then writes the JSON results */
+    public void run() throws IOException {
+        for(Benchmark benchmark : benchmarks) {
+            if(!filter.matcher(benchmark.name).find()) continue;
+            String[] engines = benchmark.engines == null ? new String[]{null}
+                    : params.containsKey("engine") ? params.get("engine") : benchmark.engines;
+            for(String size : params.get("size")) {
+                for(String scene : params.get("scene")) {
+                    for(String density : params.get("density")) {
+                        String[] regionCounts = scene.equals("speckle") ? new String[]{null} : params.get("regions"); // speckle has no regions to count
+                        for(String regions : regionCounts) {
+                            BufferedImage image = regions == null ? speckle(size, Double.parseDouble(density), benchmark.colorCount)
+                                    : frame(size, Double.parseDouble(density), Integer.parseInt(regions), benchmark.colorCount);
+                            for(String engine : engines) {
+                                if(engine != null && benchmark.engines != null && !Arrays.asList(benchmark.engines).contains(engine)) continue;
+                                LinkedHashMap<String, String> values = new LinkedHashMap<String, String>();
+                                values.put("size", size);
+                                values.put("scene", scene);
+                                values.put("density", density);
+                                if(regions != null) values.put("regions", regions);
+                                if(engine != null) values.put("engine", engine);
+                                measure(benchmark, image, engine, values);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        try(PrintWriter out = new PrintWriter(new FileWriter(resultFile))) {
+            out.println("[");
+            out.println(String.join(",\n", results));
+            out.println("]");
+        }
+        System.out.println("Results written to " + resultFile);
+    }
+
+    /** Helper Method: warms up and measures one combination, prints it and adds it to the results */
+    private void measure(Benchmark benchmark, BufferedImage image, String engine, LinkedHashMap<String, String> values) {
+        Op op = benchmark.setup.setup(image, engine);
+        for(int i = 0; i < warmups; i++) {
+            iteration(op);
+        }
+        double[] scores = new double[iterations]; // ms per call
+        for(int i = 0; i < iterations; i++) {
+            scores[i] = iteration(op);
+        }
+
+        double mean = 0;
+        for(double s : scores) mean += s;
+        mean /= scores.length;
+        double variance = 0;
+        for(double s : scores) variance += (s - mean) * (s - mean);
+        double error = scores.length < 2 ? Double.NaN
+                : studentT999(scores.length - 1) * Math.sqrt(variance / (scores.length - 1)) / Math.sqrt(scores.length);
+
+        System.out.printf("%-38s %-64s %10.4f +- %9.4f ms/op%n", benchmark.name, values, mean, error);
+        results.add(json(benchmark.name, values, mean, error, scores));
+    }
+
+    /** Helper Method: calls the op for about iterationSeconds (at least once), returns the average ms per call */
+    private double iteration(Op op) {
+        long budget = (long) (iterationSeconds * 1e9);
+        long start = System.nanoTime(), now;
+        long calls = 0;
+        do {
+            sink = op.run();
+            calls++;
+            now = System.nanoTime();
+        } while(now - start < budget);
+        return (now - start) / 1e6 / calls;
+    }
+
+    /**
+     * Makes a synthetic frame (3-byte BGR, like the webcam's): a gray background with a little noise, and the given
+     * number of target colored blobs covering about the given fraction of it, placed by a seeded generator
+     */
+    public static BufferedImage frame(String size, double density, int regions) {
+        return frame(size, density, regions, 1);
+    }
+
+    /** Same, but the blobs take turns between the first colorCount of the targets */
+    public static BufferedImage frame(String size, double density, int regions, int colorCount) {
+        Random random = new Random(seed);
+        BufferedImage image = background(size, random);
+        int width = image.getWidth(), height = image.getHeight();
+        Graphics2D g = image.createGraphics();
+        double radius = Math.sqrt(density * width * height / (regions * Math.PI));
+        for(int i = 0; i < regions; i++) { // blobs of varying sizes around the average, shades close to the target
+            int r = (int) Math.max(3, radius * (0.5 + random.nextDouble()));
+            g.setColor(shade(targets[i % colorCount], random));
+            g.fillOval(random.nextInt(width) - r, random.nextInt(height) - r, 2 * r, 2 * r);
+        }
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Makes a synthetic speckle frame: the same background, with about the given fraction of its pixels, picked at
+     * random, set to shades close to the first colorCount targets, so most regions are a pixel or two
+     */
+    public static BufferedImage speckle(String size, double density, int colorCount) {
+        Random random = new Random(seed);
+        BufferedImage image = background(size, random);
+        for(int y = 0; y < image.getHeight(); y++) {
+            for(int x = 0; x < image.getWidth(); x++) {
+                if(random.nextDouble() < density) {
+                    image.setRGB(x, y, shade(targets[random.nextInt(colorCount)], random).getRGB());
+                }
+            }
+        }
+        return image;
+    }
+
+    /** Helper Method: a 3-byte BGR frame (like the webcam's) of the size, in 8x8 cells of gray, none close to a target */
+    private static BufferedImage background(String size, Random random) {
+        int width, height;
+        switch(size.toLowerCase()) {
+            case "vga": width = 640; height = 480; break;
+            case "720p": width = 1280; height = 720; break;
+            case "1080p": width = 1920; height = 1080; break;
+            case "4k": width = 3840; height = 2160; break;
+            default: throw new IllegalArgumentException("Unknown size " + size);
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        for(int y = 0; y < height; y += 8) {
+            for(int x = 0; x < width; x += 8) {
+                int v = 120 + random.nextInt(100);
+                g.setColor(new Color(v, v, v));
+                g.fillRect(x, y, 8, 8);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    /** Helper Method: a random shade within the color tolerance of the base color */
+    private static Color shade(Color base, Random random) {
+        return new Color(base.getRed() + random.nextInt(10), base.getGreen() + random.nextInt(10), base.getBlue() - random.nextInt(10));
+    }
+
+    /** Helper Method: two-sided 99.9% Student's t quantile for the degrees of freedom, as JMH reports errors with */
+    private static double studentT999(int df) {
+        double[] t = {636.62, 31.60, 12.92, 8.61, 6.87, 5.96, 5.41, 5.04, 4.78, 4.59,
+                4.44, 4.32, 4.22, 4.14, 4.07, 4.01, 3.97, 3.92, 3.88, 3.85};
+        if(df <= t.length) return t[df - 1];
+        if(df <= 30) return 3.65;
+        return 3.29;
+    }
+
+    /** Helper Method: one result in JMH's JSON format */
+    private String json(String name, LinkedHashMap<String, String> values, double score, double error, double[] raw) {
+        StringBuilder json = new StringBuilder();
+        json.append("  {\n");
+        json.append("    \"benchmark\" : \"").append(name).append("\",\n");
+        json.append("    \"mode\" : \"avgt\",\n");
+        json.append("    \"threads\" : 1,\n");
+        json.append("    \"forks\" : 0,\n");  // every run is in this process, as JMH reports -f 0
+        json.append("    \"jvm\" : \"").append(System.getProperty("java.home").replace("\\", "\\\\")).append("\",\n");
+        json.append("    \"jdkVersion\" : \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("    \"warmupIterations\" : ").append(warmups).append(",\n");
+        json.append("    \"warmupTime\" : \"").append(iterationSeconds).append(" s\",\n");
+        json.append("    \"measurementIterations\" : ").append(iterations).append(",\n");
+        json.append("    \"measurementTime\" : \"").append(iterationSeconds).append(" s\",\n");
+        json.append("    \"params\" : {");
+        int p = 0;
+        for(Map.Entry<String, String> e : values.entrySet()) {
+            json.append(p++ == 0 ? "\n" : ",\n").append("      \"").append(e.getKey()).append("\" : \"").append(e.getValue()).append("\"");
+        }
+        json.append("\n    },\n");
+        json.append("    \"primaryMetric\" : {\n");
+        json.append("      \"score\" : ").append(number(score)).append(",\n");
+        json.append("      \"scoreError\" : ").append(number(error)).append(",\n");
+        json.append("      \"scoreUnit\" : \"ms/op\",\n");
+        json.append("      \"rawData\" : [[");
+        for(int i = 0; i < raw.length; i++) {
+            json.append(i == 0 ? "" : ", ").append(number(raw[i]));
+        }
+        json.append("]]\n");
+        json.append("    }\n");
+        json.append("  }");
+        return json.toString();
+    }
+
+    /** Helper Method: a double as JSON (which has no NaN) */
+    private static String number(double d) {
+        return Double.isNaN(d) || Double.isInfinite(d) ? "\"NaN\"" : Double.toString(d);
+    }
+
+    /**
+     * PRIVATE CLASSES AND INTERFACES
+     *
+     * Benchmark: a name, the engines it is run with (or null), how many target colors its frames have and how to set it up
+     * Setup: prepares the state for one combination and returns the call to time
+     * Op: the call to time
+     */
+
+    private static class Benchmark {
+        final String name;
+        final String[] engines;
+        final int colorCount;
+        final Setup setup;
+
+        Benchmark(String name, String[] engines, int colorCount, Setup setup) {
+            this.name = name;
+            this.engines = engines;
+            this.colorCount = colorCount;
+            this.setup = setup;
+        }
+    }
+
+    private interface Setup {
+        Op setup(BufferedImage image, String engine);
+    }
+
+    private interface Op {
+        Object run();
+    }
+
+    /**
+     * RUNNER
+     * --------------------
+     */
+
+    public static void main(String[] args) throws IOException {
+        RegionBench bench = new RegionBench();
+        bench.parse(args);
+        bench.run();
+    }
+}
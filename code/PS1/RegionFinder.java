@@ -31,14 +31,48 @@ public class RegionFinder {
 
     private static final int maxColorDiff = 30;                // how similar a pixel color must be to the target color, to belong to a region
     private static final int minRegion = 30;                // how many points in a region to be worth considering
+    private static final int trackingMargin = 20;           // how far around the last frame's region trackRegion looks first
+    private static final int retireDelay = 3;               // how many replaced recolored images to hold before recycling (the GUI may still be drawing them)
 
     private BufferedImage image;                            // the image in which to find regions
     private BufferedImage recoloredImage;                   // the image with identified regions recolored
 
     private ArrayList<ArrayList<Point>> regions;            // a region is a list of points
+    private ArrayList<SpanRegion> spanRegions;              // regions kept as runs of pixels instead, see findSpanRegions
     private ArrayList<ArrayList<Point>> largestRegions;
     // necessary for CamPaint - keeps tracks of all of the largest regions from each time largestRegion() is called/each frame of the webcam
 
+    private char engine = 'b';                              // how findRegions grows regions: 'b': Point BFS, 'f': primitive pixel flood fill,
+                                                            // 's': scanline fill into runs, 'l': labeling, 't': labeling in parallel tiles
+    private PixelRegionFinder pixelFinder;                  // engine for 'f' and 's', kept between frames so its buffers are reused
+    private RegionLabeler labeler;                          // engine for 'l' and 't', kept between frames so its buffers are reused
+    private int tiles = Runtime.getRuntime().availableProcessors(); // how many tiles engine 't' splits the image into
+    private int pyramid = 1;                                // 2 or 4: findRegions only finds the largest region, coarse to fine (1: off)
+    private PyramidFinder pyramidFinder;                    // does the coarse-to-fine search, kept between frames so its buffers are reused
+    private RegionTracker tracker;                          // follows the largest region from frame to frame, for trackRegion
+    private volatile boolean retarget;                      // a new target was picked, so the tracker's window is stale
+
+    private char colorMetric = 'e';                         // how colors are compared: 'e': euclidean, 'b': per-channel box, 'l': perceptual lab
+    private ColorMatcher matcher;                           // colorMetric compiled for the last target color, see ColorMatcher
+
+    private boolean useMask = false;                        // whether engines 'f', 'l' and 't' work from a PixelMask built up front
+    private PixelReader reader;                             // reads the image's pixels for the mask
+    private PixelMask mask;                                 // matching pixels of the current frame, reused between frames
+    private MaskMorphology morphology;                      // clean-up applied to the mask before growing regions, null for none
+
+    private BufferPool pool = new BufferPool();             // recycles recolored and visited images between frames
+    private ArrayDeque<BufferedImage> retired = new ArrayDeque<BufferedImage>(); // replaced recolored images, oldest first
+
+    private static final Metrics.Histogram findTime = Metrics.histogram("findRegions");     // see Metrics, off unless -Dmetrics=true
+    private static final Metrics.Histogram trackTime = Metrics.histogram("trackRegion");
+    private static final Metrics.Histogram recolorTime = Metrics.histogram("recolor");
+    private static final Metrics.Histogram morphologyTime = Metrics.histogram("morphology");
+
+    private StrokeHistory history;                          // if set, where largestRegion records each frame's region instead of largestRegions
+
+    private boolean statsOnly = false;                      // whether findRegions and trackRegion keep only each region's stats, no pixels
+    private ArrayList<RegionStats> statsRegions;            // the regions found in stats only mode
+
 
     /**
      * CONSTRUCTORS
@@ -48,6 +82,8 @@ public class RegionFinder {
     public RegionFinder() { // default empty constructor
         this.image = null; // initialize image
         this.regions = new ArrayList<ArrayList<Point>>(); // initializing regions in constructor
+        this.spanRegions = new ArrayList<SpanRegion>();
+        this.statsRegions = new ArrayList<RegionStats>();
         this.largestRegions = new ArrayList<ArrayList<Point>>();
         this.recoloredImage = null;
     }
@@ -55,8 +91,10 @@ public class RegionFinder {
     public RegionFinder(BufferedImage image) {
         this.image = image; // initialize image
         this.regions = new ArrayList<ArrayList<Point>>(); // initializing regions in constructor
+        this.spanRegions = new ArrayList<SpanRegion>();
+        this.statsRegions = new ArrayList<RegionStats>();
         this.largestRegions = new ArrayList<ArrayList<Point>>();
-        this.recoloredImage = new BufferedImage(image.getColorModel(), image.copyData(null), image.getColorModel().isAlphaPremultiplied(), null);
+        this.recoloredImage = pool.copyOf(image);
     }
 
 
@@ -67,7 +105,7 @@ public class RegionFinder {
 
     public void setImage(BufferedImage image) {
         this.image = image;
-        this.recoloredImage = new BufferedImage(image.getColorModel(), image.copyData(null), image.getColorModel().isAlphaPremultiplied(), null);
+        replaceRecoloredImage(pool.copyOf(image));
     }
 
     public void setLargestRegions(ArrayList<ArrayList<Point>> largestRegions) {
@@ -78,18 +116,215 @@ public class RegionFinder {
         return this.image;
     }
 
+    /**
+     * Returns the recolored image. Recolored images are recycled, so hold on to it (or copy it)
+     * only until the next few calls to setImage or recolorImage.
+     */
     public BufferedImage getRecoloredImage() {
         return this.recoloredImage;
     }
 
+    /** Returns the pool that recycles this finder's images, with its allocation counters */
+    public BufferPool getBufferPool() {
+        return this.pool;
+    }
+
     public ArrayList<ArrayList<Point>> getRegions() {
         return this.regions;
     }
 
+    /** Returns the regions added by findSpanRegions, or by findRegions with engine 's' (not included in getRegions) */
+    public ArrayList<SpanRegion> getSpanRegions() {
+        return this.spanRegions;
+    }
+
     public ArrayList<ArrayList<Point>> getLargestRegions() {
         return this.largestRegions;
     }
 
+    public StrokeHistory getHistory() {
+        return this.history;
+    }
+
+    /**
+     * Has largestRegion record each region in a StrokeHistory (compact, bounded, painted incrementally)
+     * instead of adding it to largestRegions; null goes back to largestRegions
+     */
+    public void setHistory(StrokeHistory history) {
+        this.history = history;
+    }
+
+    public char getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Returns the size, bounding box, centroid and moments of each region found in stats only mode, otherwise of each
+     * region found by the last findRegions with engine 'l' or 't' (in the same order as getRegions), or null for the
+     * other engines
+     */
+    public ArrayList<RegionStats> getRegionStats() {
+        if(statsOnly) return statsRegions;
+        if(labeler == null) return null;
+        return labeler.getRegions();
+    }
+
+    public boolean isStatsOnly() {
+        return this.statsOnly;
+    }
+
+    /**
+     * Turns on or off stats only mode: findRegions and trackRegion then add just the stats of each region to
+     * getRegionStats (counted up while labeling, whatever the engine), without ever making its Points or runs,
+     * so getRegions, largestRegion and recolorImage see nothing; use largestRegionStats instead
+     */
+    public void setStatsOnly(boolean statsOnly) {
+        this.statsOnly = statsOnly;
+    }
+
+    /**
+     * Chooses the region growing engine used by findRegions
+     * @param engine 'b' for the original Point BFS, 'f' for the primitive pixel flood fill (PixelRegionFinder),
+     *               's' for the scanline fill, whose regions are kept as runs in getSpanRegions (see findSpanRegions),
+     *               'l' for connected-component labeling (RegionLabeler), 't' for labeling in parallel tiles (ParallelRegionLabeler)
+     */
+    public void setEngine(char engine) {
+        if(engine != 'b' && engine != 'f' && engine != 's' && engine != 'l' && engine != 't') {
+            throw new IllegalArgumentException("Unknown region engine " + engine);
+        }
+        if(engine != this.engine) {
+            labeler = null; // 'l' and 't' need different labelers
+        }
+        this.engine = engine;
+    }
+
+    public int getPyramid() {
+        return this.pyramid;
+    }
+
+    /**
+     * Turns on or off pyramid mode: with a factor of 2 or 4, findRegions only adds the largest region, found on a
+     * frame downsampled by that factor and refined at full resolution just around it (see PyramidFinder), whatever
+     * the engine. 1 turns it off.
+     */
+    public void setPyramid(int pyramid) {
+        if(pyramid != 1 && pyramid != 2 && pyramid != 4) {
+            throw new IllegalArgumentException("Pyramid factor must be 1, 2 or 4, not " + pyramid);
+        }
+        if(pyramid != this.pyramid) {
+            pyramidFinder = null;
+        }
+        this.pyramid = pyramid;
+    }
+
+    /** Returns the pyramid search used in pyramid mode (with its counters), or null if it hasn't run */
+    public PyramidFinder getPyramidFinder() {
+        return this.pyramidFinder;
+    }
+
+    /**
+     * Tells trackRegion that a new target was picked (e.g. by a click), so its next frame starts with a full scan;
+     * small changes to the target color (like CamPaint's following) keep tracking the same region
+     */
+    public void retarget() {
+        this.retarget = true;
+    }
+
+    /** Returns the tracker used by trackRegion (with its hit/miss counters), or null if trackRegion hasn't been called */
+    public RegionTracker getTracker() {
+        return this.tracker;
+    }
+
+    public char getColorMetric() {
+        return this.colorMetric;
+    }
+
+    /**
+     * Chooses how a pixel's color is compared with the target color, for every engine
+     * @param colorMetric 'e' for RGB euclidean distance (the default), 'b' for a per-channel box, 'l' for L*a*b* distance
+     */
+    public void setColorMetric(char colorMetric) {
+        if(colorMetric != 'e' && colorMetric != 'b' && colorMetric != 'l') {
+            throw new IllegalArgumentException("Unknown color metric " + colorMetric);
+        }
+        this.colorMetric = colorMetric;
+    }
+
+    /** Returns the color test for the target color, compiling it only when the target color or metric has changed */
+    private ColorMatcher matcherFor(Color targetColor) {
+        matcher = ColorMatcher.reuse(matcher, targetColor, maxColorDiff, colorMetric);
+        return matcher;
+    }
+
+    public boolean getUseMask() {
+        return this.useMask;
+    }
+
+    /**
+     * Turns on or off the mask stage: engines 'f', 'l' and 't' then do all of their color tests up front in one
+     * (vectorized when possible, see PixelMask) pass that builds a bit mask, and only look at the mask afterwards
+     */
+    public void setUseMask(boolean useMask) {
+        this.useMask = useMask;
+    }
+
+    /** Returns the mask built by the last findRegions, or null if the mask stage is off */
+    public PixelMask getMask() {
+        return maskStage() ? this.mask : null;
+    }
+
+    public MaskMorphology getMorphology() {
+        return this.morphology;
+    }
+
+    /**
+     * Sets the morphology stage, which cleans up the mask before engines 'f', 's', 'l' and 't' grow regions from it
+     * (so it turns on the mask stage for them, whatever setUseMask says)
+     * @param op 'n' for none, or 'e' erode, 'd' dilate, 'o' open, 'c' close (see MaskMorphology)
+     * @param radius half the width of the square, 1 for 3x3
+     */
+    public void setMorphology(char op, int radius) {
+        this.morphology = op == 'n' ? null : new MaskMorphology(op, radius);
+    }
+
+    /** Helper Method: whether engines 'f', 's', 'l' and 't' work from a mask */
+    private boolean maskStage() {
+        return useMask || morphology != null;
+    }
+
+    /**
+     * Helper Method: builds the mask of the pixels of the current image that match the target color,
+     * cleaned up by the morphology stage if there is one
+     */
+    private PixelMask buildMask(Color targetColor) {
+        if(reader == null) {
+            reader = new PixelReader();
+        }
+        int[] pixels = reader.read(this.image);
+        mask = PixelMask.build(pixels, this.image.getWidth(), this.image.getHeight(), matcherFor(targetColor), mask);
+        if(morphology != null) {
+            long start = Metrics.start();
+            morphology.apply(mask);
+            Metrics.stop(morphologyTime, start);
+        }
+        return mask;
+    }
+
+    public int getTiles() {
+        return this.tiles;
+    }
+
+    /** Sets how many horizontal tiles engine 't' splits the image into */
+    public void setTiles(int tiles) {
+        if(tiles < 1) {
+            throw new IllegalArgumentException("Need at least one tile, not " + tiles);
+        }
+        this.tiles = tiles;
+        if(labeler instanceof ParallelRegionLabeler) {
+            ((ParallelRegionLabeler) labeler).setTiles(tiles);
+        }
+    }
+
 
     /**
      * METHODS
@@ -100,15 +335,155 @@ public class RegionFinder {
      * Sets regions to the flood-fill regions in the image, similar enough to the trackColor
      */
     public void findRegions(Color targetColor) {
+        long start = Metrics.start();
+        if(statsOnly) {
+            findRegionStats(targetColor);
+        } else if(pyramid > 1) {
+            findLargestRegionPyramid(targetColor);
+        } else if(engine == 'f') {
+            findRegionsPixels(targetColor);
+        } else if(engine == 's') {
+            findSpanRegions(targetColor);
+        } else if(engine == 'l' || engine == 't') {
+            findRegionsLabeled(targetColor);
+        } else {
+            findRegionsBFS(targetColor);
+        }
+        Metrics.stop(findTime, start);
+    }
+
+    /**
+     * Tracking alternative to findRegions, for CamPaint: adds just the largest region of the target color,
+     * looking around where it was in the last frame before falling back to a full-frame scan (see RegionTracker)
+     */
+    public void trackRegion(Color targetColor) {
+        long start = Metrics.start();
+        if(tracker == null) {
+            tracker = new RegionTracker(new RegionLabeler(maxColorDiff, minRegion), trackingMargin);
+        }
+        if(retarget) { // a new target, so nothing to follow yet
+            retarget = false;
+            tracker.reset();
+        }
+        RegionStats region = tracker.track(this.image, matcherFor(targetColor));
+        if(region != null && statsOnly) {
+            statsRegions.add(region);
+        } else if(region != null) {
+            regions.add(tracker.getPoints(region));
+        }
+        Metrics.stop(trackTime, start);
+    }
 
-        BufferedImage visited = new BufferedImage(this.image.getWidth(), this.image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        // keeps track of which pixels have already been visited by the algorithm
+    /**
+     * Stats only mode: adds the stats of the regions of the target color, counted up by labeling (in parallel tiles for
+     * engine 't', from the mask if the mask stage is on), or just the largest one's in pyramid mode
+     */
+    private void findRegionStats(Color targetColor) {
+        if(pyramid > 1) {
+            if(pyramidFinder == null) {
+                pyramidFinder = new PyramidFinder(maxColorDiff, minRegion, pyramid);
+            }
+            RegionStats region = pyramidFinder.find(this.image, matcherFor(targetColor));
+            if(region != null) {
+                statsRegions.add(region);
+            }
+            return;
+        }
+        label(targetColor);
+        statsRegions.addAll(labeler.getRegions());
+    }
+
+    /**
+     * Pyramid mode: adds just the largest region of the target color, kept as runs (see getSpanRegions),
+     * found on a downsampled frame and refined at full resolution
+     */
+    private void findLargestRegionPyramid(Color targetColor) {
+        if(pyramidFinder == null) {
+            pyramidFinder = new PyramidFinder(maxColorDiff, minRegion, pyramid);
+        }
+        RegionStats region = pyramidFinder.find(this.image, matcherFor(targetColor));
+        if(region != null) {
+            spanRegions.add(pyramidFinder.getLabeler().getSpans(region));
+        }
+    }
+
+    /**
+     * Adds the regions found by the primitive pixel engine, adapted back to lists of Points
+     * so that getRegions(), largestRegion() and recolorImage() work the same as with the BFS
+     */
+    private void findRegionsPixels(Color targetColor) {
+        if(pixelFinder == null) {
+            pixelFinder = new PixelRegionFinder(maxColorDiff, minRegion);
+        }
+        if(maskStage()) {
+            pixelFinder.findRegions(buildMask(targetColor));
+        } else {
+            pixelFinder.setImage(this.image);
+            pixelFinder.findRegions(matcherFor(targetColor));
+        }
+        for(int[] region : pixelFinder.getRegions()) {
+            regions.add(PixelRegionFinder.toPoints(region, pixelFinder.getWidth()));
+        }
+    }
+
+    /**
+     * Adds the regions found by connected-component labeling (in parallel tiles for engine 't'). Only regions of at
+     * least minRegion pixels are turned into lists of Points, each by walking just its bounding box.
+     */
+    private void findRegionsLabeled(Color targetColor) {
+        label(targetColor);
+        for(RegionStats region : labeler.getRegions()) {
+            regions.add(labeler.getPoints(region));
+        }
+    }
+
+    /** Helper Method: labels the regions of the target color, with the labeler for engine 't' or any other */
+    private void label(Color targetColor) {
+        if(labeler == null) {
+            if(engine == 't') {
+                labeler = new ParallelRegionLabeler(maxColorDiff, minRegion, tiles);
+            } else {
+                labeler = new RegionLabeler(maxColorDiff, minRegion);
+            }
+        }
+        if(maskStage()) {
+            labeler.label(buildMask(targetColor));
+        } else {
+            labeler.setImage(this.image);
+            labeler.label(matcherFor(targetColor));
+        }
+    }
+
+    /**
+     * Adds the regions similar enough to the targetColor as runs of pixels (SpanRegions), grown straight into runs by a
+     * scanline fill, without making a Point per pixel. recolorImage and largestRegion include them with the others.
+     */
+    public void findSpanRegions(Color targetColor) {
+        if(pixelFinder == null) {
+            pixelFinder = new PixelRegionFinder(maxColorDiff, minRegion);
+        }
+        if(maskStage()) {
+            pixelFinder.findSpanRegions(buildMask(targetColor));
+        } else {
+            pixelFinder.setImage(this.image);
+            pixelFinder.findSpanRegions(matcherFor(targetColor));
+        }
+        spanRegions.addAll(pixelFinder.getSpanRegions());
+    }
+
+    /**
+     * Original engine: grows a region with a BFS over Points from every unvisited pixel that matches
+     */
+    private void findRegionsBFS(Color targetColor) {
+        ColorMatcher matcher = matcherFor(targetColor);
+
+        BufferedImage visited = pool.acquireCleared(this.image.getWidth(), this.image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        // keeps track of which pixels have already been visited by the algorithm (recycled from the last frame)
 
         for (int x = 0; x < this.image.getWidth(); x++) { // loop through all of the pixels in the image
             for (int y = 0; y < this.image.getHeight(); y++) {
 
-                Color currColor = new Color(this.image.getRGB(x, y)); // get the pixel's color
-                if (visited.getRGB(x, y) == 0 && colorMatch(targetColor, currColor)) { // check if the pixel is visited and the color matches the targetColor
+                if (visited.getRGB(x, y) == 0 && matcher.matches(this.image.getRGB(x, y))) { // check if the pixel is visited and the color matches the targetColor
 
                     ArrayList<Point> colorRegion = new ArrayList<Point>(); // declare and initialize a new region
                     ArrayList<Point> toVisit = new ArrayList<Point>(); // declare and initialize a list of points that will match the color and be within the same region
@@ -125,8 +500,7 @@ public class RegionFinder {
                         for (Point neighbor : getNeighbors(p)) { // get all of the points neighbors
                             int neighborX = (int) neighbor.getX();
                             int neighborY = (int) neighbor.getY();
-                            Color neighborColor = new Color(this.image.getRGB(neighborX, neighborY));
-                            if (visited.getRGB(neighborX, neighborY) == 0 && colorMatch(targetColor, neighborColor)) { // make sure the neighbors haven't been visited and are of the correct color
+                            if (visited.getRGB(neighborX, neighborY) == 0 && matcher.matches(this.image.getRGB(neighborX, neighborY))) { // make sure the neighbors haven't been visited and are of the correct color
                                 toVisit.add(neighbor); // add the neighbor to toVisit
                                 visited.setRGB(neighborX, neighborY, 1); // set the neighbor added to toVisit as visited
                             }
@@ -160,6 +534,7 @@ public class RegionFinder {
                 }
             }
         }
+        pool.release(visited);
     }
 
     /**
@@ -231,21 +606,6 @@ public class RegionFinder {
         }
     }
 
-    /**
-     * Tests whether the two colors are "similar enough" (your definition, subject to the maxColorDiff threshold, which you can vary)
-     */
-    private static boolean colorMatch(Color c1, Color c2) {
-        double rDiff = c1.getRed() - c2.getRed(); // get the differences of all of the colors
-        double gDiff = c1.getGreen() - c2.getGreen();
-        double bDiff = c1.getBlue() - c2.getBlue();
-        double colorDiff = (int) Math.sqrt(Math.pow(rDiff, 2) + Math.pow(gDiff, 2) + Math.pow(bDiff, 2)); // find euclidean distance from the target color
-        if (colorDiff <= maxColorDiff) { // if the distance from the color is less then the max allowed, return true, else false
-            return true;
-        } else {
-            return false;
-        }
-    }
-
     /**
      * Returns the largest region detected (if any region has been detected)
      */
@@ -258,25 +618,72 @@ public class RegionFinder {
                 largestRegion = region;
             }
         }
-        largestRegions.add(largestRegion); // add it to largestRegions - important for CamPaint
+        SpanRegion largestSpans = null;
+        for (SpanRegion region : spanRegions) { // and the regions kept as runs
+            if (region.size() > largestRegionSize) {
+                largestRegionSize = region.size();
+                largestSpans = region;
+            }
+        }
+        if (largestSpans != null) { // only a run region that wins becomes Points
+            largestRegion = largestSpans.toPoints();
+        }
+        if(history != null) {
+            if(largestSpans != null) {
+                history.add(largestSpans); // record it as a stroke - important for CamPaint
+            } else {
+                history.add(largestRegion);
+            }
+        } else {
+            largestRegions.add(largestRegion); // add it to largestRegions - important for CamPaint
+        }
         return largestRegion;
     }
 
+    /**
+     * Returns the stats of the largest region found in stats only mode (if any), without recording it anywhere
+     */
+    public RegionStats largestRegionStats() {
+        RegionStats largest = null;
+        for (RegionStats region : statsRegions) {
+            if (largest == null || region.getSize() > largest.getSize()) {
+                largest = region;
+            }
+        }
+        return largest;
+    }
+
     /**
      * Clears the regions arraylist for new mouse click
      */
     public void clearRegions() {
         this.regions = new ArrayList<ArrayList<Point>>();
+        this.spanRegions = new ArrayList<SpanRegion>();
+        this.statsRegions = new ArrayList<RegionStats>();
     } // resets regions to empty ArrayList
 
+    /**
+     * Helper Method: makes next the recolored image, and recycles the recolored image from a few replacements ago
+     */
+    private void replaceRecoloredImage(BufferedImage next) {
+        if(recoloredImage != null) {
+            retired.add(recoloredImage);
+        }
+        while(retired.size() > retireDelay) {
+            pool.release(retired.poll());
+        }
+        recoloredImage = next;
+    }
+
     /**
      * Sets recoloredImage to be a copy of image,
      * but with each region a uniform random color,
      * so we can see where they are
      */
     public void recolorImage() {
+        long start = Metrics.start();
         // First copy the original
-        recoloredImage = new BufferedImage(image.getColorModel(), image.copyData(null), image.getColorModel().isAlphaPremultiplied(), null);
+        replaceRecoloredImage(pool.copyOf(image));
         // Now recolor the regions in it
         for (ArrayList<Point> region : regions) { // for each potential region
             if (region != null) { // if it exists
@@ -286,6 +693,10 @@ public class RegionFinder {
                 }
             }
         }
+        for (SpanRegion region : spanRegions) { // regions kept as runs are colored a run at a time
+            region.paint(recoloredImage, new Color((int) (Math.random() * 16777216)));
+        }
+        Metrics.stop(recolorTime, start);
     }
 
     /**
@@ -293,8 +704,9 @@ public class RegionFinder {
      * but with each region a given color
      */
     public void recolorImage(Color color) {
+        long start = Metrics.start();
         // First copy the original
-        recoloredImage = new BufferedImage(image.getColorModel(), image.copyData(null), image.getColorModel().isAlphaPremultiplied(), null);
+        replaceRecoloredImage(pool.copyOf(image));
         // Now recolor the regions in it
         for (ArrayList<Point> region : regions) { // for each potential region
             if (region != null) { // if it exists
@@ -303,6 +715,13 @@ public class RegionFinder {
                 }
             }
         }
+        if (!spanRegions.isEmpty()) { // regions kept as runs are colored a run at a time
+            Object row = SpanRegion.rowOf(recoloredImage, color);
+            for (SpanRegion region : spanRegions) {
+                region.paint(recoloredImage, row);
+            }
+        }
+        Metrics.stop(recolorTime, start);
     }
 
     /**
@@ -41,6 +41,12 @@ public class RegionFinderExtension {
     private ArrayList<ColoredRegion> largestRegions;
     // necessary for CamPaintExtension - keeps tracks of all of the largest regions from each time largestRegion() is called/each frame of the webcam
 
+    private char engine = 'b';                              // how findRegions grows regions: 'b': Point BFS, 'l': connected-component labeling
+    private RegionLabeler labeler;                          // engine for 'l', kept between frames so its buffers are reused
+    private ColorMatcher matcher;                           // colorMatch's test as tables, for 'l' (kept while the target stays the same)
+    private MultiRegionLabeler multiLabeler;                // labels several target colors in one pass, for findRegions(Color[], Color[])
+    private ColorMatcher[] matchers = new ColorMatcher[0];  // colorMatch's test for each of those targets
+
     /**
      * CONSTRUCTORS
      * --------------------
@@ -91,6 +97,21 @@ public class RegionFinderExtension {
         this.largestRegions = regions;
     }
 
+    public char getEngine() {
+        return this.engine;
+    }
+
+    /**
+     * Chooses the region growing engine used by findRegions
+     * @param engine 'b' for the original Point BFS, 'l' for connected-component labeling (RegionLabeler)
+     */
+    public void setEngine(char engine) {
+        if(engine != 'b' && engine != 'l') {
+            throw new IllegalArgumentException("Unknown region engine " + engine);
+        }
+        this.engine = engine;
+    }
+
     /**
      * METHODS
      * --------------------
@@ -100,6 +121,10 @@ public class RegionFinderExtension {
      * Sets regions to the flood-fill regions in the image, similar enough to the trackColor.
      */
     public void findRegions(Color targetColor, Color paintColor) {
+        if(engine == 'l') {
+            findRegionsLabeled(targetColor, paintColor);
+            return;
+        }
 
         BufferedImage visited = new BufferedImage(this.image.getWidth(), this.image.getHeight(), BufferedImage.TYPE_INT_ARGB);
         // keeps track of which pixels have already been visited by the algorithm
@@ -162,6 +187,50 @@ public class RegionFinderExtension {
         }
     }
 
+    /**
+     * Adds the regions found by connected-component labeling, each with the given paint color.
+     * Regions are kept as runs of pixels (SpanRegions), and only turned into Points if getRegion() asks for them.
+     */
+    private void findRegionsLabeled(Color targetColor, Color paintColor) {
+        if(labeler == null) {
+            labeler = new RegionLabeler(maxColorDiff, minRegion);
+        }
+        labeler.setImage(this.image);
+        matcher = ColorMatcher.reuse(matcher, targetColor, maxColorDiff, 'x'); // colorMatch's untruncated distance, not RegionFinder's
+        labeler.label(matcher);
+        for(RegionStats region : labeler.getRegions()) {
+            regions.add(new ColoredRegion(labeler.getSpans(region), paintColor));
+        }
+    }
+
+    /**
+     * Adds the regions of several target colors at once, in a single pass over the image (whatever the engine):
+     * each pixel goes to the first target it is similar enough to, and each region gets the paint color of its target
+     * and remembers the target's index (see ColoredRegion.getTarget). Pixels are tested as colorMatch does, so with
+     * targets far enough apart that no pixel matches two, the regions are those of one findRegions(Color, Color) per target.
+     * @param targetColors - colors to find regions of, in order of priority
+     * @param paintColors - paint color of each target's regions
+     */
+    public void findRegions(Color[] targetColors, Color[] paintColors) {
+        if(targetColors.length != paintColors.length) {
+            throw new IllegalArgumentException(targetColors.length + " target colors but " + paintColors.length + " paint colors");
+        }
+        if(multiLabeler == null) {
+            multiLabeler = new MultiRegionLabeler(maxColorDiff, minRegion);
+        }
+        multiLabeler.setImage(this.image);
+        ColorMatcher[] previous = matchers;
+        matchers = new ColorMatcher[targetColors.length];
+        for(int t = 0; t < targetColors.length; t++) { // keeping the tables of targets that didn't change
+            matchers[t] = ColorMatcher.reuse(t < previous.length ? previous[t] : null, targetColors[t], maxColorDiff, 'x');
+        }
+        multiLabeler.label(matchers);
+        for(RegionStats region : multiLabeler.getRegions()) {
+            int target = multiLabeler.getTarget(region);
+            regions.add(new ColoredRegion(multiLabeler.getSpans(region), paintColors[target], target));
+        }
+    }
+
     /**
      * Helper Method: Get Neighbors - Part of Pierson's Algorithm
      * Returns an ArrayList with each of the 8 neighbors to point "point"
@@ -253,8 +322,8 @@ public class RegionFinderExtension {
         int largestRegionSize = 0;
         ColoredRegion largestRegion = null;
         for(ColoredRegion region : regions) { // goes through all of the regions
-            if(region.getRegion().size() > largestRegionSize) { // if it is larger than the largest, set as largest
-                largestRegionSize = region.getRegion().size();
+            if(region.size() > largestRegionSize) { // if it is larger than the largest, set as largest
+                largestRegionSize = region.size();
                 largestRegion = region;
             }
         }
@@ -262,6 +331,24 @@ public class RegionFinderExtension {
         return largestRegion;
     }
 
+    /**
+     * Returns the largest region of each of the targets of the last findRegions(Color[], Color[]), null for a target
+     * with none, and adds those found to largestRegions - one brush per target for CamPaintExtension
+     */
+    public ColoredRegion[] largestRegionEach(int targets) {
+        ColoredRegion[] largest = new ColoredRegion[targets];
+        for(ColoredRegion region : regions) { // goes through all of the regions once, keeping the largest of each target
+            int t = region.getTarget();
+            if(t >= 0 && t < targets && (largest[t] == null || region.size() > largest[t].size())) {
+                largest[t] = region;
+            }
+        }
+        for(ColoredRegion region : largest) {
+            if(region != null) largestRegions.add(region);
+        }
+        return largest;
+    }
+
     /**
      * Clears the regions arraylist for new mouseclick
      */
@@ -280,9 +367,7 @@ public class RegionFinderExtension {
         // Now recolor the regions in it
         for(ColoredRegion region : regions) { // for each region
             if(region != null) { // if it exists
-                for (Point p : region.getRegion()) { // color each point the color the region matches
-                    recoloredImage.setRGB((int) p.getX(), (int) p.getY(), region.getColor().getRGB());
-                }
+                region.paint(recoloredImage); // color each point the color the region matches
             }
         }
     }
@@ -294,9 +379,7 @@ public class RegionFinderExtension {
     public void recolorImage(ArrayList<ColoredRegion> regions, BufferedImage image) {
         for(ColoredRegion region : regions) { // for each region
             if(region != null) { // if it exists
-                for (Point p : region.getRegion()) { // color each point the color the region matches
-                    image.setRGB((int) p.getX(), (int) p.getY(), region.getColor().getRGB());
-                }
+                region.paint(image); // color each point the color the region matches
             }
         }
     }
@@ -305,7 +388,7 @@ public class RegionFinderExtension {
      * PRIVATE CLASS
      *
      * ColoredRegion
-     * A class that contains a region (ArrayList of Points) and a color as well as getters and setters to access said variables
+     * A class that contains a region (ArrayList of Points, or runs of pixels) and a color as well as getters and setters to access said variables
      */
 
     private class ColoredRegion {
@@ -315,7 +398,9 @@ public class RegionFinderExtension {
          */
 
         ArrayList<Point> region;
+        SpanRegion spans;       // the region as runs of pixels, if it was found that way (then region is only made when asked for)
         Color color;
+        int target = -1;        // index of the target color it was found for by a multi-target findRegions, -1 otherwise
 
         /**
          * CONSTRUCTORS
@@ -328,18 +413,55 @@ public class RegionFinderExtension {
             this.color = color;
         }
 
+        private ColoredRegion(SpanRegion spans, Color color) {
+            this.spans = spans;
+            this.color = color;
+        }
+
+        private ColoredRegion(SpanRegion spans, Color color, int target) {
+            this(spans, color);
+            this.target = target;
+        }
+
         /**
          * GETTERS AND SETTERS
          */
 
         public ArrayList<Point> getRegion() {
+            if(region == null) {
+                region = spans.toPoints();
+            }
             return region;
         }
 
+        /** Number of points in the region */
+        public int size() {
+            return spans != null ? spans.size() : region.size();
+        }
+
+        /**
+         * METHODS
+         */
+
+        /** Colors the region's points in the image, a run at a time if it is kept as runs */
+        public void paint(BufferedImage image) {
+            if(spans != null) {
+                spans.paint(image, color);
+                return;
+            }
+            for (Point p : region) {
+                image.setRGB((int) p.getX(), (int) p.getY(), color.getRGB());
+            }
+        }
+
         public Color getColor() {
             return color;
         }
 
+        public int getTarget() {
+            return target;
+        }
+
     }
 
 }
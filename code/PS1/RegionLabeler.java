@@ -0,0 +1,401 @@
+/**
+ * RegionLabeler
+ * Connected-component labeling of the pixels that match a target color, as an alternative to starting a BFS at every
+ * matching seed pixel. The first pass walks the image row by row, giving each matching pixel the label of an already
+ * labeled neighbor (west, north-west, north, north-east) and recording in a union-find when two labels touch. The
+ * second pass resolves every label to its component and counts up each component's size, bounding box and centroid.
+ * Components smaller than minRegion never turn into objects, so thousands of specks cost no more than one pixel test each.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+public class RegionLabeler {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    protected final int maxColorDiff;           // how similar a pixel color must be to the target color, to belong to a region
+    protected final int minRegion;              // how many points in a region to be worth considering
+
+    protected int width, height;                // size of the current image
+    protected int[] pixels;                     // packed RGB pixels of the current image, row by row
+    private PixelReader reader;                 // reads the pixels, reusing its buffer from frame to frame
+    protected int[] labels;                     // label of each pixel, 0 for pixels that don't match
+    protected int[] parent;                     // union-find over labels, a root is its own parent and the smallest label of its component
+    protected int x0, x1;                       // columns being labeled, x0 inclusive to x1 exclusive (the whole width unless windowed)
+    private ColorMatcher matcher;               // color test for the last target color, kept while the target stays the same
+    protected ColorMatcher test;                // color test of the current labeling, null when it is consulting a mask
+    protected PixelMask mask;                   // matching pixels of the current labeling, null when it is testing colors
+
+    protected int[] compact;                    // component number (0, 1, 2, ...) of each root label
+    protected int components;                   // how many components the last labeling found, of any size
+    protected Totals totals;                    // per component totals of the last labeling
+
+    protected ArrayList<RegionStats> regions;   // components with at least minRegion pixels, labeled with their component number + 1
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public RegionLabeler(int maxColorDiff, int minRegion) {
+        this.maxColorDiff = maxColorDiff;
+        this.minRegion = minRegion;
+        this.regions = new ArrayList<RegionStats>();
+        this.totals = new Totals();
+        this.reader = new PixelReader();
+    }
+
+    /**
+     * GETTERS AND SETTERS
+     * --------------------
+     */
+
+    /** Reads the pixels of the image, reusing the label buffers of the previous image whenever they are big enough */
+    public void setImage(BufferedImage image) {
+        setSize(image.getWidth(), image.getHeight());
+        this.pixels = reader.read(image);
+    }
+
+    /**
+     * Uses pixels that are already packed RGB ints, row by row, as the image (no BufferedImage needed).
+     * The array is used as is, not copied, so it must not change while labeling.
+     */
+    public void setPixels(int[] pixels, int width, int height) {
+        setSize(width, height);
+        this.pixels = pixels;
+    }
+
+    /** Helper Method: sets the image size, making sure the label buffers are big enough for it */
+    private void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int n = width * height;
+        if(labels == null || labels.length < n) {
+            labels = new int[n];
+            parent = new int[n + 1];    // label 0 is never used, so there can be at most n labels
+            compact = new int[n + 1];
+        }
+    }
+
+    public int getMaxColorDiff() {
+        return maxColorDiff;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Returns the regions with at least minRegion pixels found by the last call to label() */
+    public ArrayList<RegionStats> getRegions() {
+        return regions;
+    }
+
+    /** Returns how many components (of any size) the last call to label() found */
+    public int getComponentCount() {
+        return components;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Labels the connected regions (8-neighbor) of pixels similar enough to the targetColor,
+     * and sets regions to the stats of those with at least minRegion pixels
+     */
+    public void label(Color targetColor) {
+        label(targetColor, new Rectangle(0, 0, width, height));
+    }
+
+    /**
+     * Same as label(targetColor), but only looks at the pixels inside the window: regions are cut off at its edges,
+     * and the labels of pixels outside it are left as they were
+     */
+    public void label(Color targetColor, Rectangle window) {
+        matcher = ColorMatcher.reuse(matcher, targetColor, maxColorDiff, 'e');
+        label(matcher, window);
+    }
+
+    /** Labels the connected regions of pixels accepted by the matcher, over the whole image */
+    public void label(ColorMatcher matcher) {
+        label(matcher, new Rectangle(0, 0, width, height));
+    }
+
+    /** Labels the connected regions of pixels accepted by the matcher, inside the window */
+    public void label(ColorMatcher matcher, Rectangle window) {
+        this.test = matcher;
+        this.mask = null;
+        labelWindow(window);
+    }
+
+    /**
+     * Labels the connected regions of the pixels set in the mask, without looking at any colors
+     * (no setImage needed, the mask gives the size)
+     */
+    public void label(PixelMask mask) {
+        label(mask, new Rectangle(0, 0, mask.getWidth(), mask.getHeight()));
+    }
+
+    /** Labels the connected regions of the pixels set in the mask, inside the window */
+    public void label(PixelMask mask, Rectangle window) {
+        setSize(mask.getWidth(), mask.getHeight());
+        this.test = null;
+        this.mask = mask;
+        labelWindow(window);
+    }
+
+    /** Labels the window, testing pixels with test or mask (whichever is set) */
+    protected void labelWindow(Rectangle window) {
+        Rectangle w = window.intersection(new Rectangle(0, 0, width, height));
+        x0 = w.x;
+        x1 = w.x + Math.max(w.width, 0);
+        int y0 = w.y, y1 = w.y + Math.max(w.height, 0);
+        int nextLabel = labelRows(y0, y1, y0 * width + 1);
+        components = 0;
+        resolveLabels(y0 * width + 1, nextLabel);
+        totals.clear(components);
+        countRows(y0, y1, totals);
+        keepRegions(totals);
+    }
+
+    /**
+     * First pass over rows y0 (inclusive) to y1 (exclusive): labels each matching pixel from its already labeled
+     * neighbors within these rows, handing out new labels starting at nextLabel.
+     * Returns the next unused label.
+     */
+    protected int labelRows(int y0, int y1, int nextLabel) {
+        for(int y = y0; y < y1; y++) {
+            int row = y * width;
+            for(int x = x0; x < x1; x++) {
+                int i = row + x;
+                if(mask != null ? !mask.get(x, y) : !test.matches(pixels[i])) {
+                    labels[i] = 0;
+                    continue;
+                }
+                int l = 0;
+                if(x > x0) l = join(l, labels[i - 1]); // west
+                if(y > y0) { // the row above, as long as it is one of ours
+                    int up = i - width;
+                    if(x > x0) l = join(l, labels[up - 1]);
+                    l = join(l, labels[up]);
+                    if(x < x1 - 1) l = join(l, labels[up + 1]);
+                }
+                if(l == 0) { // no labeled neighbors, so this starts a new label
+                    l = nextLabel++;
+                    parent[l] = l;
+                }
+                labels[i] = l;
+            }
+        }
+        return nextLabel;
+    }
+
+    /** Helper Method: joins a pixel's current label with a neighbor's label, returning the label to keep */
+    protected int join(int label, int neighbor) {
+        if(neighbor == 0) return label;
+        if(label == 0) return neighbor;
+        if(label != neighbor) union(label, neighbor);
+        return label;
+    }
+
+    /** Finds the root label of the component containing label (halving the path on the way up) */
+    protected int find(int label) {
+        while(parent[label] != label) {
+            parent[label] = parent[parent[label]];
+            label = parent[label];
+        }
+        return label;
+    }
+
+    /** Merges the components of the two labels, keeping the smaller root so that roots always come first */
+    protected void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if(rootA < rootB) {
+            parent[rootB] = rootA;
+        } else if(rootB < rootA) {
+            parent[rootA] = rootB;
+        }
+    }
+
+    /**
+     * Gives every root label in [from, to) the next component number, and every other label its root's number.
+     * Must be called on label ranges in increasing order, so a root has been numbered before any label under it.
+     */
+    protected void resolveLabels(int from, int to) {
+        for(int l = from; l < to; l++) {
+            int root = find(l);
+            if(root == l) {
+                compact[l] = components++;
+            } else {
+                compact[l] = compact[root];
+            }
+        }
+    }
+
+    /**
+     * Second pass over rows y0 (inclusive) to y1 (exclusive): relabels pixels with their component number + 1
+     * and counts up each component's totals into t
+     */
+    protected void countRows(int y0, int y1, Totals t) {
+        for(int y = y0; y < y1; y++) {
+            int row = y * width;
+            for(int x = x0; x < x1; x++) {
+                int i = row + x;
+                if(labels[i] == 0) continue;
+                int c = compact[labels[i]];
+                labels[i] = c + 1;
+                t.add(c, x, y);
+            }
+        }
+    }
+
+    /** Sets regions to the stats of the components with at least minRegion pixels */
+    protected void keepRegions(Totals t) {
+        regions = new ArrayList<RegionStats>();
+        for(int c = 0; c < components; c++) {
+            if(t.size[c] >= minRegion) { // only regions worth considering get an object
+                regions.add(new RegionStats(c + 1, t.size[c], t.minX[c], t.minY[c], t.maxX[c], t.maxY[c], t.sumX[c], t.sumY[c],
+                        t.sumXX[c], t.sumYY[c], t.sumXY[c]));
+            }
+        }
+    }
+
+    /**
+     * Returns the largest region from the last labeling (if any), in O(#regions)
+     */
+    public RegionStats largestRegion() {
+        RegionStats largestRegion = null;
+        for(RegionStats region : regions) {
+            if(largestRegion == null || region.getSize() > largestRegion.getSize()) {
+                largestRegion = region;
+            }
+        }
+        return largestRegion;
+    }
+
+    /**
+     * Builds the list of Points in a region, only walking the region's bounding box
+     */
+    public ArrayList<Point> getPoints(RegionStats region) {
+        ArrayList<Point> points = new ArrayList<Point>(region.getSize());
+        for(int y = region.getMinY(); y <= region.getMaxY(); y++) {
+            int row = y * width;
+            for(int x = region.getMinX(); x <= region.getMaxX(); x++) {
+                if(labels[row + x] == region.getLabel()) {
+                    points.add(new Point(x, y));
+                }
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Adapter: the pixels of a region (from getRegions) as runs, found by walking just its bounding box
+     */
+    public SpanRegion getSpans(RegionStats region) {
+        IntStack spans = new IntStack(3 * (region.getMaxY() - region.getMinY() + 1));
+        int label = region.getLabel();
+        for(int y = region.getMinY(); y <= region.getMaxY(); y++) {
+            int row = y * width;
+            int x = region.getMinX();
+            while(x <= region.getMaxX()) {
+                if(labels[row + x] != label) {
+                    x++;
+                    continue;
+                }
+                int x1 = x;
+                while(x <= region.getMaxX() && labels[row + x] == label) x++;
+                spans.push(y);
+                spans.push(x1);
+                spans.push(x - 1);
+            }
+        }
+        return new SpanRegion(spans.toArray(), spans.size() / 3);
+    }
+
+    /**
+     * PROTECTED CLASS
+     *
+     * Totals
+     * Running size, bounding box, coordinate sums and second moment sums of each component, indexed by component number.
+     * The arrays are kept from one image to the next and only grown when there are more components.
+     */
+
+    protected static class Totals {
+
+        int[] size, minX, minY, maxX, maxY;
+        long[] sumX, sumY, sumXX, sumYY, sumXY;
+
+        /** Makes sure there are zeroed totals for the given number of components */
+        void clear(int components) {
+            if(size == null || size.length < components) {
+                int capacity = Math.max(components, 64);
+                size = new int[capacity];
+                minX = new int[capacity];
+                minY = new int[capacity];
+                maxX = new int[capacity];
+                maxY = new int[capacity];
+                sumX = new long[capacity];
+                sumY = new long[capacity];
+                sumXX = new long[capacity];
+                sumYY = new long[capacity];
+                sumXY = new long[capacity];
+            }
+            Arrays.fill(size, 0, components, 0);
+            Arrays.fill(minX, 0, components, Integer.MAX_VALUE);
+            Arrays.fill(minY, 0, components, Integer.MAX_VALUE);
+            Arrays.fill(maxX, 0, components, Integer.MIN_VALUE);
+            Arrays.fill(maxY, 0, components, Integer.MIN_VALUE);
+            Arrays.fill(sumX, 0, components, 0L);
+            Arrays.fill(sumY, 0, components, 0L);
+            Arrays.fill(sumXX, 0, components, 0L);
+            Arrays.fill(sumYY, 0, components, 0L);
+            Arrays.fill(sumXY, 0, components, 0L);
+        }
+
+        /** Adds pixel (x, y) to component c */
+        void add(int c, int x, int y) {
+            size[c]++;
+            sumX[c] += x;
+            sumY[c] += y;
+            sumXX[c] += (long) x * x;
+            sumYY[c] += (long) y * y;
+            sumXY[c] += (long) x * y;
+            if(x < minX[c]) minX[c] = x;
+            if(x > maxX[c]) maxX[c] = x;
+            if(y < minY[c]) minY[c] = y;
+            if(y > maxY[c]) maxY[c] = y;
+        }
+
+        /** Adds the totals of the first components of other into these */
+        void addAll(Totals other, int components) {
+            for(int c = 0; c < components; c++) {
+                if(other.size[c] == 0) continue;
+                size[c] += other.size[c];
+                sumX[c] += other.sumX[c];
+                sumY[c] += other.sumY[c];
+                sumXX[c] += other.sumXX[c];
+                sumYY[c] += other.sumYY[c];
+                sumXY[c] += other.sumXY[c];
+                minX[c] = Math.min(minX[c], other.minX[c]);
+                maxX[c] = Math.max(maxX[c], other.maxX[c]);
+                minY[c] = Math.min(minY[c], other.minY[c]);
+                maxY[c] = Math.max(maxY[c], other.maxY[c]);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * RegionStats
+ * Summary of one region found in an image: how many pixels it has, its bounding box, its centroid, and its second
+ * moments, which give its orientation and the ellipse with the same spread (a region's shape in five numbers).
+ * Built up one pixel (or run of pixels) at a time while the region is found, so nobody has to walk the region's
+ * points again, or even keep them.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+
+public class RegionStats {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private int label;                      // label of the region in the image it came from
+    private int size;                       // number of pixels in the region
+    private int minX, minY, maxX, maxY;     // bounding box, inclusive
+    private long sumX, sumY;                // running sums of the coordinates, for the centroid
+    private long sumXX, sumYY, sumXY;       // running sums of their squares and products, for the second moments
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    /** Creates empty stats for the region with the given label */
+    public RegionStats(int label) {
+        this.label = label;
+        this.size = 0;
+        this.minX = Integer.MAX_VALUE;
+        this.minY = Integer.MAX_VALUE;
+        this.maxX = Integer.MIN_VALUE;
+        this.maxY = Integer.MIN_VALUE;
+    }
+
+    /** Creates stats for the region with the given label from totals that were already counted up (without moments) */
+    public RegionStats(int label, int size, int minX, int minY, int maxX, int maxY, long sumX, long sumY) {
+        this(label, size, minX, minY, maxX, maxY, sumX, sumY, 0, 0, 0);
+    }
+
+    /** Creates stats for the region with the given label from totals that were already counted up, moments included */
+    public RegionStats(int label, int size, int minX, int minY, int maxX, int maxY, long sumX, long sumY,
+                       long sumXX, long sumYY, long sumXY) {
+        this.label = label;
+        this.size = size;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.sumX = sumX;
+        this.sumY = sumY;
+        this.sumXX = sumXX;
+        this.sumYY = sumYY;
+        this.sumXY = sumXY;
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    public int getLabel() {
+        return label;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /** Bounding box of the region (empty if the region has no pixels) */
+    public Rectangle getBounds() {
+        if(size == 0) return new Rectangle();
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    public double getCentroidX() {
+        return (double) sumX / size;
+    }
+
+    public double getCentroidY() {
+        return (double) sumY / size;
+    }
+
+    /** Variance of the x coordinates (central second moment mu20 / size) */
+    public double getVarianceX() {
+        double cx = getCentroidX();
+        return (double) sumXX / size - cx * cx;
+    }
+
+    /** Variance of the y coordinates (mu02 / size) */
+    public double getVarianceY() {
+        double cy = getCentroidY();
+        return (double) sumYY / size - cy * cy;
+    }
+
+    /** Covariance of the x and y coordinates (mu11 / size) */
+    public double getCovariance() {
+        return (double) sumXY / size - getCentroidX() * getCentroidY();
+    }
+
+    /**
+     * Angle of the region's long axis, in radians from the x axis (toward y, so clockwise on screen),
+     * between -pi/2 and pi/2; 0 for a region with no long axis
+     */
+    public double getOrientation() {
+        return 0.5 * Math.atan2(2 * getCovariance(), getVarianceX() - getVarianceY());
+    }
+
+    /** Half the length of the long axis of the ellipse with the same second moments as the region */
+    public double getMajorAxis() {
+        return 2 * Math.sqrt(eigenvalue(1));
+    }
+
+    /** Half the length of the short axis of that ellipse */
+    public double getMinorAxis() {
+        return 2 * Math.sqrt(eigenvalue(-1));
+    }
+
+    /** How elongated the region is, from 0 (round) to nearly 1 (a line) */
+    public double getEccentricity() {
+        double major = eigenvalue(1);
+        return major <= 0 ? 0 : Math.sqrt(1 - Math.max(0, eigenvalue(-1)) / major);
+    }
+
+    /** Helper Method: the larger (sign 1) or smaller (sign -1) eigenvalue of the covariance matrix, never negative */
+    private double eigenvalue(int sign) {
+        double vx = getVarianceX(), vy = getVarianceY(), c = getCovariance();
+        double half = (vx - vy) / 2;
+        return Math.max(0, (vx + vy) / 2 + sign * Math.sqrt(half * half + c * c));
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Adds one pixel to the region */
+    public void add(int x, int y) {
+        size++;
+        sumX += x;
+        sumY += y;
+        sumXX += (long) x * x;
+        sumYY += (long) y * y;
+        sumXY += (long) x * y;
+        if(x < minX) minX = x;
+        if(x > maxX) maxX = x;
+        if(y < minY) minY = y;
+        if(y > maxY) maxY = y;
+    }
+
+    /** Adds the run of pixels x1 to x2 (inclusive) of row y to the region, in closed form rather than a pixel at a time */
+    public void addRun(int y, int x1, int x2) {
+        long n = x2 - x1 + 1;
+        long xs = n * (x1 + x2) / 2;                                // sum of x over the run
+        long xxs = sumOfSquares(x2) - sumOfSquares(x1 - 1);         // and of x squared
+        size += n;
+        sumX += xs;
+        sumY += n * y;
+        sumXX += xxs;
+        sumYY += n * y * y;
+        sumXY += xs * y;
+        if(x1 < minX) minX = x1;
+        if(x2 > maxX) maxX = x2;
+        if(y < minY) minY = y;
+        if(y > maxY) maxY = y;
+    }
+
+    /** Helper Method: 0^2 + 1^2 + ... + k^2 (0 for k < 0) */
+    private static long sumOfSquares(long k) {
+        return k < 0 ? 0 : k * (k + 1) * (2 * k + 1) / 6;
+    }
+
+    /** Adds all of the pixels summarized by other to this region (used when two partial regions turn out to be one) */
+    public void merge(RegionStats other) {
+        if(other.size == 0) return;
+        size += other.size;
+        sumX += other.sumX;
+        sumY += other.sumY;
+        sumXX += other.sumXX;
+        sumYY += other.sumYY;
+        sumXY += other.sumXY;
+        minX = Math.min(minX, other.minX);
+        maxX = Math.max(maxX, other.maxX);
+        minY = Math.min(minY, other.minY);
+        maxY = Math.max(maxY, other.maxY);
+    }
+
+    /** Two stats are equal if they describe the same pixels: same label, size, bounding box and coordinate sums */
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof RegionStats)) return false;
+        RegionStats other = (RegionStats) o;
+        return label == other.label && size == other.size && sumX == other.sumX && sumY == other.sumY
+                && minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((label * 31 + size) * 31 + Long.hashCode(sumX)) * 31 + Long.hashCode(sumY);
+    }
+
+    @Override
+    public String toString() {
+        return "region " + label + ": " + size + " pixels in [" + minX + "," + minY + "]-[" + maxX + "," + maxY + "]";
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * RegionTracker
+ * Follows the largest region of a target color from one webcam frame to the next. Since the brush only moves a few
+ * pixels between frames, each frame is first labeled only inside a window around where the region was last seen
+ * (its bounding box plus a margin). If the region there runs into the edge of the window it has probably moved
+ * further, so the window is grown around it and labeled once more. Only when the region is lost (or keeps running
+ * off the window) does the tracker fall back to labeling the whole frame. Only the pixels of the window are read
+ * from the frame, so a hit costs about as much as the window, not the frame.
+ *
+ * Keeps count of hits (frames resolved inside the window) and misses (frames where the region got away from the
+ * window and needed a full scan; the first scan, with no window yet, is neither).
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+public class RegionTracker {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private RegionLabeler labeler;              // does the labeling, inside the window or over the whole frame
+    private PixelReader reader;                 // reads just the window's pixels (or the whole frame's), reusing its buffer
+    private int margin;                         // how many pixels to grow the last bounding box by, on every side
+    private Rectangle window;                   // where to look in the next frame, null if there is nothing to track
+    private ColorMatcher matcher;               // color test for the last target color passed to track
+
+    private long hits;                          // frames where the region was found inside the window
+    private long misses;                        // frames where the region was lost, so the whole frame had to be labeled
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public RegionTracker(RegionLabeler labeler, int margin) {
+        this.labeler = labeler;
+        this.reader = new PixelReader();
+        this.margin = margin;
+        this.window = null;
+    }
+
+    /**
+     * GETTERS AND SETTERS
+     * --------------------
+     */
+
+    public RegionLabeler getLabeler() {
+        return labeler;
+    }
+
+    /** Returns the window the next frame will be searched in first, or null if the next frame gets a full scan */
+    public Rectangle getWindow() {
+        return window;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /** Fraction of tracked frames that did not need a full scan */
+    public double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Finds the largest region of the target color in the image, starting from where it was in the last frame.
+     * Returns its stats (use getPoints for its pixels), or null if there is no such region anywhere in the frame.
+     */
+    public RegionStats track(BufferedImage image, Color targetColor) {
+        matcher = ColorMatcher.reuse(matcher, targetColor, labeler.getMaxColorDiff(), 'e');
+        return track(image, matcher);
+    }
+
+    /** Same as track(image, targetColor), with the pixels of the region being those accepted by the matcher */
+    public RegionStats track(BufferedImage image, ColorMatcher matcher) {
+        Rectangle frame = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        RegionStats region = null;
+
+        if(window != null) {
+            region = findInWindow(image, matcher, window, frame);
+            if(region == null) { // ran off the window (or vanished from it), so give it one bigger window
+                RegionStats partial = labeler.largestRegion();
+                if(partial != null) {
+                    region = findInWindow(image, matcher, around(partial, frame), frame);
+                }
+            }
+        }
+
+        if(region != null) {
+            hits++;
+        } else { // lost it (or had nothing to follow yet): look everywhere
+            if(window != null) misses++;
+            labeler.setPixels(reader.read(image), frame.width, frame.height);
+            labeler.label(matcher);
+            region = labeler.largestRegion();
+        }
+
+        window = region == null ? null : around(region, frame);
+        return region;
+    }
+
+    /**
+     * Helper Method: reads and labels just the window, and returns the largest region in it,
+     * unless there is none or it touches an edge of the window that isn't an edge of the frame
+     */
+    private RegionStats findInWindow(BufferedImage image, ColorMatcher matcher, Rectangle w, Rectangle frame) {
+        labeler.setPixels(reader.read(image, w), frame.width, frame.height);
+        labeler.label(matcher, w);
+        RegionStats region = labeler.largestRegion();
+        if(region == null) return null;
+        if((region.getMinX() == w.x && w.x > 0)
+                || (region.getMinY() == w.y && w.y > 0)
+                || (region.getMaxX() == w.x + w.width - 1 && w.x + w.width < frame.width)
+                || (region.getMaxY() == w.y + w.height - 1 && w.y + w.height < frame.height)) {
+            return null; // cut off by the window, so it isn't the whole region
+        }
+        return region;
+    }
+
+    /** Helper Method: the region's bounding box grown by the margin, clipped to the frame */
+    private Rectangle around(RegionStats region, Rectangle frame) {
+        Rectangle bounds = region.getBounds();
+        bounds.grow(margin, margin);
+        return bounds.intersection(frame);
+    }
+
+    /** Builds the list of Points in a region returned by the last call to track */
+    public ArrayList<Point> getPoints(RegionStats region) {
+        return labeler.getPoints(region);
+    }
+
+    /** Forgets the tracked region, so the next frame gets a full scan */
+    public void reset() {
+        window = null;
+    }
+
+    /** Zeroes the hit and miss counters */
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "tracker: " + hits + " hits, " + misses + " misses (" + Math.round(getHitRate() * 100) + "% hit rate)";
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * SpanRegion
+ * A region stored as horizontal runs of pixels (row, first x, last x) instead of a list of Points. A Point costs
+ * upwards of 30 bytes per pixel of region; a span costs 12 bytes per run, however long the run, so large regions of
+ * one color shrink by one or two orders of magnitude, and are recolored a whole run at a time.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+public class SpanRegion {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final int[] spans;                  // [y, x1, x2] triples, one per run
+    private final int count;                    // how many runs
+    private final int size;                     // how many pixels, over all the runs
+    private int minX, minY, maxX, maxY;         // bounding box
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    /** Takes the first count [y, x1, x2] triples of spans (not copied), which must not overlap */
+    public SpanRegion(int[] spans, int count) {
+        this.spans = spans;
+        this.count = count;
+        minX = minY = Integer.MAX_VALUE;
+        maxX = maxY = Integer.MIN_VALUE;
+        int size = 0;
+        for(int i = 0; i < 3 * count; i += 3) {
+            size += spans[i + 2] - spans[i + 1] + 1;
+            minY = Math.min(minY, spans[i]);
+            maxY = Math.max(maxY, spans[i]);
+            minX = Math.min(minX, spans[i + 1]);
+            maxX = Math.max(maxX, spans[i + 2]);
+        }
+        this.size = size;
+    }
+
+    /** Adapter: the runs of a list of Points, in row order */
+    public static SpanRegion fromPoints(ArrayList<Point> points) {
+        long[] keys = new long[points.size()]; // sort the points by row, then column, so runs can be found
+        for(int i = 0; i < keys.length; i++) {
+            Point p = points.get(i);
+            keys[i] = ((long) p.y << 32) | p.x;
+        }
+        Arrays.sort(keys);
+
+        IntStack spans = new IntStack(64);
+        int i = 0;
+        while(i < keys.length) {
+            int y = (int) (keys[i] >> 32);
+            int x1 = (int) keys[i];
+            int x2 = x1;
+            i++;
+            while(i < keys.length && (int) (keys[i] >> 32) == y && (int) keys[i] <= x2 + 1) { // extends the run
+                x2 = Math.max(x2, (int) keys[i]);
+                i++;
+            }
+            spans.push(y);
+            spans.push(x1);
+            spans.push(x2);
+        }
+        return new SpanRegion(spans.toArray(), spans.size() / 3);
+    }
+
+    /**
+     * The runs of the ellipse with the same centroid and second moments as the stats' region (see RegionStats),
+     * cut off at the edges of a width x height image; a stand-in for a region whose pixels weren't kept
+     */
+    public static SpanRegion ellipse(RegionStats stats, int width, int height) {
+        double cx = stats.getCentroidX(), cy = stats.getCentroidY();
+        double a = Math.max(stats.getMajorAxis(), 0.5), b = Math.max(stats.getMinorAxis(), 0.5);
+        double cos = Math.cos(stats.getOrientation()), sin = Math.sin(stats.getOrientation());
+        // (x, y) is inside if (u/a)^2 + (v/b)^2 <= 1, u and v along the axes; for a row that is A dx^2 + B dx + C <= 0
+        double qa = cos * cos / (a * a) + sin * sin / (b * b);
+        double qb = 2 * sin * cos * (1 / (a * a) - 1 / (b * b));
+        double qc = sin * sin / (a * a) + cos * cos / (b * b);
+        double reach = Math.sqrt(a * a * sin * sin + b * b * cos * cos); // how far the ellipse goes above and below its center
+
+        IntStack spans = new IntStack(3 * (2 * (int) reach + 1));
+        int y0 = Math.max(0, (int) Math.ceil(cy - reach)), y1 = Math.min(height - 1, (int) Math.floor(cy + reach));
+        for(int y = y0; y <= y1; y++) {
+            double dy = y - cy;
+            double disc = qb * qb * dy * dy - 4 * qa * (qc * dy * dy - 1);
+            if(disc < 0) continue;
+            double root = Math.sqrt(disc);
+            int x1 = Math.max(0, (int) Math.ceil(cx + (-qb * dy - root) / (2 * qa)));
+            int x2 = Math.min(width - 1, (int) Math.floor(cx + (-qb * dy + root) / (2 * qa)));
+            if(x1 > x2) continue;
+            spans.push(y);
+            spans.push(x1);
+            spans.push(x2);
+        }
+        return new SpanRegion(spans.toArray(), spans.size() / 3);
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    /** Number of pixels in the region */
+    public int size() {
+        return size;
+    }
+
+    public int getSpanCount() {
+        return count;
+    }
+
+    /** Row of run i */
+    public int getY(int i) {
+        return spans[3 * i];
+    }
+
+    /** First x of run i */
+    public int getX1(int i) {
+        return spans[3 * i + 1];
+    }
+
+    /** Last x of run i (inclusive) */
+    public int getX2(int i) {
+        return spans[3 * i + 2];
+    }
+
+    /** The [y, x1, x2] triples, of which the first getSpanCount() are used; not a copy */
+    public int[] getSpans() {
+        return spans;
+    }
+
+    public Rectangle getBounds() {
+        if(count == 0) return new Rectangle();
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    /** Stats of the region (size, bounds, centroid, moments), added up a run at a time */
+    public RegionStats getStats() {
+        RegionStats stats = new RegionStats(0);
+        for(int i = 0; i < 3 * count; i += 3) {
+            stats.addRun(spans[i], spans[i + 1], spans[i + 2]);
+        }
+        return stats;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Adapter: the region as the list of Points used by RegionFinder */
+    public ArrayList<Point> toPoints() {
+        ArrayList<Point> points = new ArrayList<Point>(size);
+        for(int i = 0; i < 3 * count; i += 3) {
+            for(int x = spans[i + 1]; x <= spans[i + 2]; x++) {
+                points.add(new Point(x, spans[i]));
+            }
+        }
+        return points;
+    }
+
+    /** Colors the region in the image */
+    public void paint(BufferedImage image, Color color) {
+        paint(image, rowOf(image, color));
+    }
+
+    /** Colors the region in the image with a row made by rowOf for the same image, one setDataElements per run */
+    public void paint(BufferedImage image, Object row) {
+        WritableRaster raster = image.getRaster();
+        int width = raster.getWidth(), height = raster.getHeight();
+        for(int i = 0; i < 3 * count; i += 3) {
+            int y = spans[i];
+            int x1 = Math.max(spans[i + 1], 0), x2 = Math.min(spans[i + 2], width - 1);
+            if(y < 0 || y >= height || x1 > x2) continue;
+            raster.setDataElements(x1, y, x2 - x1 + 1, 1, row); // only reads as much of the row as the run needs
+        }
+    }
+
+    /**
+     * A whole row of the image in the given color, in the raster's own data format (so it can be copied straight in);
+     * make it once per color and image type and paint any number of regions with it
+     */
+    public static Object rowOf(BufferedImage image, Color color) {
+        Object pixel = image.getColorModel().getDataElements(color.getRGB(), null);
+        int width = image.getWidth();
+        int n = java.lang.reflect.Array.getLength(pixel); // data elements per pixel, e.g. 3 bytes for TYPE_3BYTE_BGR
+        Object row = java.lang.reflect.Array.newInstance(pixel.getClass().getComponentType(), width * n);
+        for(int x = 0; x < width; x++) {
+            System.arraycopy(pixel, 0, row, x * n, n);
+        }
+        return row;
+    }
+
+    @Override
+    public String toString() {
+        return "SpanRegion{" + size + " pixels in " + count + " spans, bounds " + getBounds() + "}";
+    }
+}
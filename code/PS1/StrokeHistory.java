@@ -0,0 +1,241 @@
+/**
+ * StrokeHistory
+ * Compact record of the brush strokes in a CamPaint session: one stroke per frame, each the largest region of that
+ * frame stored as run-length spans (row, first x, last x) in a primitive int buffer instead of a list of Points.
+ * Once the buffer reaches its cap, the oldest strokes are spilled to a temporary file, so a long session never grows
+ * the heap past the cap.
+ *
+ * Strokes can be painted incrementally: paintNew only paints the strokes added since it was last called, so the
+ * painting is kept up to date without going over every stroke of the session again each frame.
+ *
+ * Every public method holds the history's lock, so one thread (CamPaint's event thread clearing the canvas, say) can
+ * use it while another (the webcam processor adding and painting strokes) is in the middle of a call.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+
+public class StrokeHistory {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private final int maxInts;                  // cap on the in-memory buffer, in ints
+    private int[] buffer;                       // in-memory strokes, each [span count, y, x1, x2, y, x1, x2, ...]
+    private int used;                           // ints of buffer in use
+    private IntStack strokeStarts;              // offset in buffer of each in-memory stroke
+
+    private File spillFile;                     // where spilled strokes go, created when first needed
+    private DataOutputStream spill;             // open for appending while strokes are being spilled
+    private int spilledStrokes;                 // how many of the oldest strokes are on disk rather than in memory
+    private int painted;                        // how many strokes paintNew has painted so far
+    private int newMinX, newMinY, newMaxX, newMaxY; // bounding box of the strokes paintNew hasn't painted yet
+
+    private int[] row;                          // one row of paint, reused for painting spans
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    /** Keeps at most about 4 MB of strokes in memory */
+    public StrokeHistory() {
+        this(1 << 20);
+    }
+
+    public StrokeHistory(int maxInts) {
+        this.maxInts = Math.max(maxInts, 1024);
+        this.buffer = new int[Math.min(this.maxInts, 1 << 14)];
+        this.strokeStarts = new IntStack();
+        this.row = new int[0];
+        resetNewBounds();
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    /** Number of strokes recorded (in memory and spilled) */
+    public synchronized int size() {
+        return spilledStrokes + strokeStarts.size();
+    }
+
+    public synchronized int getSpilledStrokes() {
+        return spilledStrokes;
+    }
+
+    /** Bounding box of the strokes added since the last paint (empty if there are none), what paintNew will change */
+    public synchronized Rectangle getNewBounds() {
+        if(newMaxX < newMinX) return new Rectangle();
+        return new Rectangle(newMinX, newMinY, newMaxX - newMinX + 1, newMaxY - newMinY + 1);
+    }
+
+    /** Ints of stroke data currently held in memory */
+    public synchronized int getMemoryUsed() {
+        return used;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Records a region (null regions, from frames without one, are skipped) as the next stroke */
+    public void add(ArrayList<Point> region) {
+        if(region == null) return;
+        add(SpanRegion.fromPoints(region));
+    }
+
+    /** Records a region that is already in spans as the next stroke (null is skipped) */
+    public void add(SpanRegion region) {
+        if(region == null) return;
+        addSpans(region.getSpans(), region.getSpanCount());
+    }
+
+    /** Records the next stroke from spans already stored as [y, x1, x2] triples */
+    public synchronized void addSpans(int[] spans, int count) {
+        int needed = 1 + 3 * count;
+        if(used + needed > maxInts && strokeStarts.size() > 0) {
+            spillOldest(used + needed - maxInts);
+        }
+        if(used + needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(used + needed, Math.min(buffer.length * 2, Math.max(maxInts, used + needed))));
+        }
+        strokeStarts.push(used);
+        buffer[used++] = count;
+        System.arraycopy(spans, 0, buffer, used, 3 * count);
+        used += 3 * count;
+        for(int i = 0; i < 3 * count; i += 3) {
+            newMinY = Math.min(newMinY, spans[i]);
+            newMaxY = Math.max(newMaxY, spans[i]);
+            newMinX = Math.min(newMinX, spans[i + 1]);
+            newMaxX = Math.max(newMaxX, spans[i + 2]);
+        }
+    }
+
+    /** Helper Method: forgets the bounding box of the unpainted strokes, once they are painted */
+    private void resetNewBounds() {
+        newMinX = newMinY = Integer.MAX_VALUE;
+        newMaxX = newMaxY = Integer.MIN_VALUE;
+    }
+
+    /** Helper Method: moves the oldest in-memory strokes, at least the given number of ints of them, to the spill file */
+    private void spillOldest(int atLeast) {
+        try {
+            if(spill == null) {
+                if(spillFile == null) {
+                    spillFile = File.createTempFile("strokes", ".bin");
+                    spillFile.deleteOnExit();
+                }
+                spill = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile, true)));
+            }
+            int strokes = 0;
+            int end = 0;
+            while(strokes < strokeStarts.size() && (end < atLeast || end < used / 2)) { // spill half, so this doesn't happen every frame
+                end = strokeEnd(strokes);
+                strokes++;
+            }
+            for(int i = 0; i < end; i++) {
+                spill.writeInt(buffer[i]);
+            }
+            spill.flush();
+            System.arraycopy(buffer, end, buffer, 0, used - end);
+            used -= end;
+            IntStack starts = new IntStack(strokeStarts.size());
+            for(int s = strokes; s < strokeStarts.size(); s++) {
+                starts.push(strokeStarts.get(s) - end);
+            }
+            strokeStarts = starts;
+            spilledStrokes += strokes;
+        } catch(IOException e) {
+            throw new UncheckedIOException("Couldn't spill strokes to " + spillFile, e);
+        }
+    }
+
+    /** Helper Method: offset just past the in-memory stroke s */
+    private int strokeEnd(int s) {
+        int start = strokeStarts.get(s);
+        return start + 1 + 3 * buffer[start];
+    }
+
+    /** Paints the strokes added since the last call, and returns how many that was */
+    public synchronized int paintNew(BufferedImage target, Color color) {
+        int count = size() - painted;
+        paint(target, color.getRGB(), painted);
+        painted = size();
+        resetNewBounds();
+        return count;
+    }
+
+    /** Paints every stroke of the session, from the spill file and from memory */
+    public synchronized void paintAll(BufferedImage target, Color color) {
+        paint(target, color.getRGB(), 0);
+        painted = size();
+        resetNewBounds();
+    }
+
+    /** Helper Method: paints strokes from the given stroke number on */
+    private void paint(BufferedImage target, int rgb, int from) {
+        if(from < spilledStrokes) { // some of them are only on disk
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)))) {
+                for(int s = 0; s < spilledStrokes; s++) {
+                    int count = in.readInt();
+                    for(int k = 0; k < count; k++) {
+                        int y = in.readInt(), x1 = in.readInt(), x2 = in.readInt();
+                        if(s >= from) paintSpan(target, rgb, y, x1, x2);
+                    }
+                }
+            } catch(IOException e) {
+                throw new UncheckedIOException("Couldn't read strokes from " + spillFile, e);
+            }
+        }
+        for(int s = Math.max(from - spilledStrokes, 0); s < strokeStarts.size(); s++) {
+            int start = strokeStarts.get(s);
+            int count = buffer[start];
+            for(int k = 0, i = start + 1; k < count; k++, i += 3) {
+                paintSpan(target, rgb, buffer[i], buffer[i + 1], buffer[i + 2]);
+            }
+        }
+    }
+
+    /** Helper Method: paints one span, clipped to the target, with a single setRGB call */
+    private void paintSpan(BufferedImage target, int rgb, int y, int x1, int x2) {
+        if(y < 0 || y >= target.getHeight()) return;
+        x1 = Math.max(x1, 0);
+        x2 = Math.min(x2, target.getWidth() - 1);
+        int length = x2 - x1 + 1;
+        if(length <= 0) return;
+        if(row.length < length || row[0] != rgb) {
+            row = new int[Math.max(length, row.length)];
+            Arrays.fill(row, rgb);
+        }
+        target.setRGB(x1, y, length, 1, row, 0, length);
+    }
+
+    /** Forgets every stroke, in memory and on disk */
+    public synchronized void clear() {
+        used = 0;
+        strokeStarts.clear();
+        spilledStrokes = 0;
+        painted = 0;
+        resetNewBounds();
+        try {
+            if(spill != null) spill.close();
+        } catch(IOException e) {
+            // nothing left to lose, the file is being thrown away
+        }
+        spill = null;
+        if(spillFile != null) {
+            spillFile.delete();
+            spillFile = null;
+        }
+    }
+}
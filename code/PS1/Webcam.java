@@ -1,5 +1,9 @@
 import java.awt.*;
 import java.awt.image.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import javax.swing.*;
 
@@ -22,17 +26,53 @@ import static org.bytedeco.opencv.global.opencv_imgproc.*;
  * @author Tim Pierson, Dartmouth CS 10, Fall 2018, added check for Mac or Windows
  * @author Tim Pierson, Dartmouth CS 10, Fall 2019, updated to JavaCV 1.5.1
  *
+ * Frames go through a three stage pipeline: the capture stage (Grabby) grabs, flips and resizes frames as fast as
+ * the camera delivers them, the process stage (Processor) runs processImage() on the newest grabbed frame (dropping any
+ * older ones waiting), and the render stage paints the newest processed frame on the event thread. Stages are connected by bounded FrameRings
+ * that drop the oldest frame when full, so capture never waits on processing and nothing waits on painting.
+ *
+ * With direct on, frames aren't copied onto the heap: the capture stage resizes (and flips) each grabbed frame straight
+ * into one of a fixed set of off-heap OpenCV images, which the pipeline sees as BufferedImages over that same memory
+ * (DirectDataBuffer). A slot goes back to the set when its frame is dropped, or a few frames after processing is done
+ * with it (so the event thread can finish drawing it); image is only good until then, so copy it to keep it longer.
+ *
+ * image is the frame being processed, which changes as soon as the next one comes along; displayed is the frame the
+ * render stage last painted, once processImage was done with it, so draw() shows that one.
+ * If every slot is taken, or the camera's frames aren't 8-bit BGR, frames are converted and copied as before.
  */
 public class Webcam extends DrawingGUI {
     protected boolean mac = true;					// automatically set to true for mac, false otherwise
     private static final double scale = 0.5;		// to downsize the image (for speed), set this to a fraction <= 1
     private static final boolean mirror = true;		// make true in order to mirror left<->right so your left hand is on the left side of the image
+    private static final int queueSize = 2;			// how many frames can wait between two stages before the oldest is dropped
+    private static final boolean direct = true;		// make false to copy every frame onto the heap instead of using off-heap slots
+    private static final int retireDelay = 2;		// frames processed since a slot's frame before it can be reused
+    private static final int slotCount = queueSize + 1 + retireDelay + 1;	// waiting, processing, retiring, being filled
 
-    protected BufferedImage image;					// image grabbed from webcam (if any)
+    protected volatile BufferedImage image;			// image grabbed from webcam (if any), the one being processed
+    protected volatile BufferedImage displayed;		// newest fully processed image, the one being shown (set on the event thread)
 
-    private Grabby grabby;							// handles webcam grabbing
+    private Grabby grabby;							// capture stage: handles webcam grabbing
+    private Processor processor;					// process stage: runs processImage
     private FrameGrabber grabber;					// JavaCV
 
+    private FrameRing<Grabbed> grabbedFrames = new FrameRing<Grabbed>(queueSize);		// capture -> process
+    private FrameRing<Grabbed> processedFrames = new FrameRing<Grabbed>(queueSize);	// process -> render
+    private AtomicBoolean renderPending = new AtomicBoolean(false);						// whether a render is already waiting on the event thread
+
+    private ArrayBlockingQueue<Slot> freeSlots = new ArrayBlockingQueue<Slot>(slotCount);	// off-heap frame buffers ready to be filled
+    private ArrayDeque<Grabbed> retired = new ArrayDeque<Grabbed>();						// processed frames whose slots aren't free yet (process stage only)
+
+    private StageTimer captureTime = new StageTimer("capture");		// grab to frame ready
+    private StageTimer processTime = new StageTimer("process");		// processImage
+    private StageTimer renderTime = new StageTimer("render");		// processed to painted
+    private StageTimer latency = new StageTimer("end-to-end");		// grabbed to painted
+
+    private static final Metrics.Histogram grabTime = Metrics.histogram("grab");			// waiting for the camera's next frame
+    private static final Metrics.Histogram resizeTime = Metrics.histogram("resize/flip");	// mirroring and scaling it
+    private static final Metrics.Counter processedCount = Metrics.counter("frames processed");
+    private static final Metrics.Counter copiedCount = Metrics.counter("frames copied");		// went the heap way, not into a slot
+
     public Webcam() {
         super("Webcam");
 
@@ -70,7 +110,11 @@ public class Webcam extends DrawingGUI {
         }
         initWindow(width,height);
 
-        // Spawn a separate thread to handle grabbing.
+        Metrics.startDumping(); // only when run with -Dmetrics=true
+
+        // Spawn separate threads to handle grabbing and processing.
+        processor = new Processor();
+        processor.start();
         grabby = new Grabby();
         grabby.execute();
     }
@@ -83,22 +127,89 @@ public class Webcam extends DrawingGUI {
     }
 
     /**
-     * DrawingGUI method, here showing the current image.
+     * DrawingGUI method, here showing the newest processed image.
      */
     @Override
     public void draw(Graphics g) {
-        g.drawImage(image, 0, 0, null);
+        g.drawImage(displayed, 0, 0, null);
+    }
+
+    /**
+     * DrawingGUI method, here drawing the current Metrics over the top left of the canvas (when run with -Dmetrics=true).
+     */
+    @Override
+    protected Rectangle drawOverlay(Graphics g) {
+        if (!Metrics.enabled) return null;
+        java.util.List<String> lines = Metrics.lines();
+        FontMetrics fm = g.getFontMetrics();
+        int lineHeight = fm.getHeight(), boxWidth = 0;
+        for (String line : lines) {
+            boxWidth = Math.max(boxWidth, fm.stringWidth(line));
+        }
+        Rectangle box = new Rectangle(4, 4, boxWidth + 8, lines.size() * lineHeight + 8);
+        g.setColor(new Color(0, 0, 0, 160));
+        g.fillRect(box.x, box.y, box.width, box.height);
+        g.setColor(Color.white);
+        for (int i = 0; i < lines.size(); i++) {
+            g.drawString(lines.get(i), 8, 8 + fm.getAscent() + i * lineHeight);
+        }
+        return box;
+    }
+
+    /**
+     * Returns the per stage latencies and the frames dropped between stages, for sizing the pipeline
+     */
+    public String getPipelineStats() {
+        return captureTime + "\n" + processTime + "\n" + renderTime + "\n" + latency + "\n"
+                + "dropped: " + grabbedFrames.getDropped() + " before processing, "
+                + processedFrames.getDropped() + " before rendering";
     }
 
     /**
-     * Handles grabbing an image from the webcam (following JavaCV examples)
-     * storing it in image, and telling the canvas to repaint itself.
+     * Helper Method: gives a frame's off-heap slot back, if it has one
+     */
+    private void release(Grabbed frame) {
+        if (frame != null && frame.slot != null) {
+            freeSlots.offer(frame.slot);
+            frame.slot = null;
+        }
+    }
+
+    /**
+     * Render stage: asks the event thread to paint, unless it has already been asked and hasn't gotten to it yet
+     */
+    private void requestRender() {
+        if (renderPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    renderPending.set(false);
+                    Grabbed frame = processedFrames.pollLatest(); // anything older than this is stale
+                    if (frame == null) return;
+                    displayed = frame.image;
+                    Rectangle area = getRepaintBounds(); // the whole canvas, unless the subclass tracks what changed
+                    if (!area.isEmpty()) {
+                        canvas.paintImmediately(area); //*** this causes draw() to fire
+                    }
+                    long painted = System.nanoTime();
+                    renderTime.record(painted - frame.processed);
+                    latency.record(painted - frame.grabbed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Capture stage: handles grabbing an image from the webcam (following JavaCV examples)
+     * and handing it to the process stage.
      */
     private class Grabby extends SwingWorker<Void, Void> {
+        private Slot[] slots;		// all of the off-heap slots, once the first frame has been grabbed
+
         protected Void doInBackground() throws Exception {
             OpenCVFrameConverter.ToIplImage grabberConverter = new OpenCVFrameConverter.ToIplImage();
             Java2DFrameConverter paintConverter = new Java2DFrameConverter();
             while (!isCancelled()) {
+                long start = System.nanoTime();
                 IplImage grabbed = null;
                 while (grabbed == null) {
                     try {
@@ -108,33 +219,164 @@ public class Webcam extends DrawingGUI {
                         Thread.sleep(100); // wait a bit
                     }
                 }
-                if (mirror) {
-                    cvFlip(grabbed, grabbed, 1);
-                }
-                if (scale != 1) {
-                    IplImage resized = IplImage.create(width, height, grabbed.depth(), grabbed.nChannels());
-                    cvResize(grabbed, resized);
-                    grabbed = resized;
-                }
-                Frame frame = grabberConverter.convert(grabbed);
-                image = paintConverter.getBufferedImage(frame);
-                try {
-                    processImage();  //*** we will override this
-                }
-                catch (Exception e) {
-                    // Bail out if problems processing image
-                    System.err.println("Exception in processImage!");
-                    e.printStackTrace();
-                    System.exit(-1);
+                Metrics.stop(grabTime, start);
+                long resizing = Metrics.start();
+                Grabbed g = grabDirect(grabbed, start);
+                Metrics.stop(resizeTime, resizing);
+                if (g == null) { // no slot free (or not a BGR frame), so the heap way
+                    resizing = Metrics.start();
+                    if (mirror) {
+                        cvFlip(grabbed, grabbed, 1);
+                    }
+                    if (scale != 1) {
+                        IplImage resized = IplImage.create(width, height, grabbed.depth(), grabbed.nChannels());
+                        cvResize(grabbed, resized);
+                        grabbed = resized;
+                    }
+                    Metrics.stop(resizeTime, resizing);
+                    Frame frame = grabberConverter.convert(grabbed);
+                    BufferedImage converted = paintConverter.getBufferedImage(frame);
+                    // the converter reuses its image, so the pipeline gets its own copy
+                    g = new Grabbed(new BufferedImage(converted.getColorModel(), converted.copyData(null), converted.getColorModel().isAlphaPremultiplied(), null), start);
+                    Metrics.count(copiedCount);
                 }
-                canvas.repaint(); //*** this causes draw() to fire
-                Thread.sleep(100); // slow it down
+                captureTime.record(System.nanoTime() - start);
+                release(grabbedFrames.offer(g)); // drops the oldest waiting frame if processing is behind
             }
             // All done; clean up
+            processor.interrupt();
             grabber.stop();
             grabber.release();
             grabber = null;
             return null;
         }
+
+        /**
+         * Mirrors and scales the grabbed frame straight into a free off-heap slot, and returns it as a pipeline frame;
+         * null if direct is off, the frame isn't 8-bit 3-channel, or no slot is free
+         */
+        private Grabbed grabDirect(IplImage grabbed, long start) {
+            if (!direct || grabbed.depth() != IPL_DEPTH_8U || grabbed.nChannels() != 3) return null;
+            if (slots == null) { // the first frame, now that we know the camera gives BGR
+                slots = new Slot[slotCount];
+                for (int i = 0; i < slotCount; i++) {
+                    slots[i] = new Slot(width, height);
+                    freeSlots.offer(slots[i]);
+                }
+            }
+            Slot slot = freeSlots.poll();
+            if (slot == null) return null;
+            if (scale != 1) {
+                cvResize(grabbed, slot.ipl);
+                if (mirror) cvFlip(slot.ipl, slot.ipl, 1); // flipping the smaller image is cheaper
+            } else if (mirror) {
+                cvFlip(grabbed, slot.ipl, 1);
+            } else {
+                ByteBuffer from = grabbed.getByteBuffer();
+                ByteBuffer to = slot.buffer.duplicate();
+                from.limit(from.position() + Math.min(from.remaining(), to.remaining()));
+                to.put(from);
+            }
+            Grabbed g = new Grabbed(slot.image, start);
+            g.slot = slot;
+            return g;
+        }
+    }
+
+    /**
+     * Process stage: runs processImage on the newest grabbed frame (dropping older ones), then hands it to the render stage.
+     */
+    private class Processor extends Thread {
+        public Processor() {
+            super("Webcam processor");
+            setDaemon(true);
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    Grabbed frame = grabbedFrames.takeLatest(Webcam.this::release); // older waiting frames are stale
+                    long start = System.nanoTime();
+                    image = frame.image;
+                    retired.add(frame);
+                    while (retired.size() > retireDelay + 1) { // the current frame, plus a few for the event thread to finish drawing
+                        release(retired.poll());
+                    }
+                    try {
+                        processImage();  //*** we will override this
+                    }
+                    catch (Exception e) {
+                        // Bail out if problems processing image
+                        System.err.println("Exception in processImage!");
+                        e.printStackTrace();
+                        System.exit(-1);
+                    }
+                    frame.processed = System.nanoTime();
+                    processTime.record(frame.processed - start);
+                    Metrics.count(processedCount);
+                    processedFrames.offer(frame);
+                    requestRender();
+                }
+            }
+            catch (InterruptedException e) {
+                // capture has stopped, so we're done
+            }
+        }
+    }
+
+    /**
+     * A frame on its way through the pipeline, with the times it passed each stage.
+     */
+    private static class Grabbed {
+        BufferedImage image;
+        volatile Slot slot;				// the off-heap slot image is in, null if image is on the heap (or the slot is back)
+        long grabbed;					// System.nanoTime() when grabbing started
+        long processed;					// System.nanoTime() when processImage finished
+
+        Grabbed(BufferedImage image, long grabbed) {
+            this.image = image;
+            this.grabbed = grabbed;
+        }
+    }
+
+    /**
+     * An off-heap frame buffer: an OpenCV image of the window's size, and a BufferedImage over the same memory.
+     */
+    private static class Slot {
+        final IplImage ipl;				// where OpenCV writes the frame
+        final ByteBuffer buffer;		// its pixel bytes
+        final BufferedImage image;		// the same bytes as a BufferedImage (DirectDataBuffer)
+
+        Slot(int width, int height) {
+            ipl = IplImage.create(width, height, IPL_DEPTH_8U, 3);
+            buffer = ipl.getByteBuffer();
+            image = DirectDataBuffer.wrapBGR(buffer, width, height, ipl.widthStep());
+        }
+    }
+
+    /**
+     * Latency of one stage: how many frames went through it, their average and their worst time.
+     */
+    private static class StageTimer {
+        private final String name;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();		// nanoseconds
+        private final AtomicLong max = new AtomicLong();		// nanoseconds
+
+        StageTimer(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        public String toString() {
+            long n = count.get();
+            double avg = n == 0 ? 0 : total.get() / (double) n / 1e6;
+            return String.format("%s: %d frames, avg %.2f ms, max %.2f ms", name, n, avg, max.get() / 1e6);
+        }
     }
 }
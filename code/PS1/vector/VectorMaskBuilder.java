@@ -0,0 +1,89 @@
+/**
+ * VectorMaskBuilder
+ * Builds a PixelMask with the (incubating) Vector API: a whole vector of packed pixels is split into channels,
+ * compared with the target color and turned into mask bits at once, instead of one pixel at a time.
+ * Handles the box and (both) euclidean metrics of ColorMatcher; the lab metric and quantized matchers are left to the
+ * scalar builder.
+ *
+ * Needs jdk.incubator.vector to compile and run, so it sits in a source directory of its own, apart from the rest of
+ * PS1 (which builds with a plain javac *.java). To use it, compile it after the rest, from PS1:
+ *     javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorMaskBuilder.java
+ * and run with java --add-modules jdk.incubator.vector. PixelMask loads this class by name, so if it wasn't compiled
+ * or the module is missing at run time, masks are just built by the scalar path.
+ *
+ * @class -> CS10, Fall 2020, Pierson
+ * --------------------
+ */
+
+import jdk.incubator.vector.*;
+
+public class VectorMaskBuilder implements PixelMask.MaskBuilder {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private static final VectorSpecies<Integer> species = IntVector.SPECIES_PREFERRED; // widest vector of ints the CPU has
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public VectorMaskBuilder() {
+        if(species.length() > 64) { // a vector's worth of bits has to fit in a long
+            throw new IllegalStateException("Vectors of " + species.length() + " ints are too wide");
+        }
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    public boolean supports(ColorMatcher matcher) {
+        return !matcher.isQuantized() && (matcher.getMetric() == 'b' || matcher.getMetric() == 'e' || matcher.getMetric() == 'x');
+    }
+
+    public void build(int[] pixels, ColorMatcher matcher, PixelMask mask) {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        int target = matcher.getTargetRGB();
+        int tr = (target >> 16) & 0xff, tg = (target >> 8) & 0xff, tb = target & 0xff;
+        int tolerance = matcher.getTolerance();
+        int maxDist = matcher.getMetric() == 'x' ? tolerance * tolerance  // same thresholds as ColorMatcher's euclidean tables
+                : (tolerance + 1) * (tolerance + 1) - 1;
+        boolean box = matcher.getMetric() == 'b';
+        int lanes = species.length();
+        int vectorWidth = species.loopBound(width);
+
+        for(int y = 0; y < height; y++) {
+            int row = y * width;
+            int x = 0;
+            for(; x < vectorWidth; x += lanes) {
+                IntVector p = IntVector.fromArray(species, pixels, row + x);
+                IntVector dr = p.lanewise(VectorOperators.LSHR, 16).and(0xff).sub(tr);
+                IntVector dg = p.lanewise(VectorOperators.LSHR, 8).and(0xff).sub(tg);
+                IntVector db = p.and(0xff).sub(tb);
+                VectorMask<Integer> match;
+                if(box) {
+                    match = dr.abs().compare(VectorOperators.LE, tolerance)
+                            .and(dg.abs().compare(VectorOperators.LE, tolerance))
+                            .and(db.abs().compare(VectorOperators.LE, tolerance));
+                } else {
+                    match = dr.mul(dr).add(dg.mul(dg)).add(db.mul(db)).compare(VectorOperators.LE, maxDist);
+                }
+                long bits = match.toLong();
+                if(bits != 0) {
+                    mask.setBits(x, y, bits, lanes);
+                }
+            }
+            for(; x < width; x++) { // whatever is left of the row after the last whole vector
+                if(matcher.matches(pixels[row + x])) {
+                    mask.set(x, y);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * BlobStore
+ * Blobs kept as a structure of arrays (x, y, dx, dy, r and dr each in a double array of their own) instead of a list of
+ * Blob objects, for simulations with many thousands of blobs: a step runs down the arrays in order, with no object per
+ * blob to chase and no virtual step() call per blob.
+ *
+ * Behaviors are those of the blob classes: 'b' Bouncer, 'w' Wanderer, 'p' WanderingPulsar and 't' Teleporter. Rather
+ * than a tag per blob, the arrays are kept grouped by behavior (all the bouncers, then all the wanderers, and so on),
+ * so each behavior's step is one tight loop over its own stretch of the arrays. Adding a blob moves at most one blob of
+ * each later behavior to make room, so a blob's index changes as others are added or removed; indices only hold still
+ * between changes.
+ *
+ * Code that works on Point2Ds (like PointQuadtree) gets at the blobs through views, reused from step to step.
+ *
+ * @class -> CS 10, Fall 2020, Pierson
+ */
+
+import java.util.*;
+
+public class BlobStore {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    public static final char[] types = {'b', 'w', 'p', 't'};   // behaviors, in the order the arrays are grouped
+
+    private final int xmax, ymax;                   // size of the area bouncers bounce in and teleporters jump around
+    private double[] x, y;                          // positions
+    private double[] dx, dy;                        // velocities
+    private double[] r, dr;                         // radii and growth steps
+    private boolean[] collided;                     // whether each blob has been marked as collided
+    private final int[] start = new int[types.length];  // index of the first blob of each behavior
+    private int size;                               // number of blobs, so the end of the last behavior's blobs
+    private View[] views = new View[0];             // view of each index, made as needed
+    private final SplittableRandom random = new SplittableRandom(); // for the wanderers and teleporters (one thread only)
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    public BlobStore(int xmax, int ymax) {
+        this.xmax = xmax; this.ymax = ymax;
+        int capacity = 64;
+        x = new double[capacity]; y = new double[capacity];
+        dx = new double[capacity]; dy = new double[capacity];
+        r = new double[capacity]; dr = new double[capacity];
+        collided = new boolean[capacity];
+    }
+
+    /**
+     * GETTERS AND SETTERS
+     * --------------------
+     */
+
+    public int size() {
+        return size;
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y[i];
+    }
+
+    public double getR(int i) {
+        return r[i];
+    }
+
+    /** Behavior of the blob at index i ('b', 'w', 'p' or 't') */
+    public char getType(int i) {
+        for(int k = types.length - 1; k > 0; k--) {
+            if(i >= start[k]) return types[k];
+        }
+        return types[0];
+    }
+
+    public boolean isCollided(int i) {
+        return collided[i];
+    }
+
+    public void setCollided(int i) {
+        collided[i] = true;
+    }
+
+    /** Point2D view of the blob at index i (good until blobs are added or removed) */
+    public View view(int i) {
+        if(views.length < size) {
+            views = Arrays.copyOf(views, x.length);
+        }
+        if(views[i] == null) views[i] = new View(i);
+        return views[i];
+    }
+
+    /** Point2D views of all the blobs, in index order (good until blobs are added or removed) */
+    public List<View> views() {
+        ArrayList<View> all = new ArrayList<View>(size);
+        for(int i = 0; i < size; i++) {
+            all.add(view(i));
+        }
+        return all;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Adds a blob of the given behavior at (x, y), starting out as the blob class's constructor would,
+     * and returns its index; an unknown behavior is an IllegalArgumentException
+     */
+    public int add(char type, double x, double y) {
+        int k = kind(type);
+        if(size == this.x.length) grow();
+        int free = size;
+        for(int j = types.length - 1; j > k; j--) { // shift each later behavior's blobs along by one
+            move(start[j], free);
+            free = start[j];
+            start[j]++;
+        }
+        size++;
+        this.x[free] = x; this.y[free] = y;
+        r[free] = 5; dx[free] = 0; dy[free] = 0; dr[free] = 0;
+        collided[free] = false;
+        if(type == 'b') { // step size randomly between -r and +r
+            dx[free] = 2 * r[free] * (random.nextDouble() - 0.5);
+            dy[free] = 2 * r[free] * (random.nextDouble() - 0.5);
+        }
+        else if(type == 'p') {
+            dr[free] = 1 + random.nextDouble();
+        }
+        return free;
+    }
+
+    /** Removes every blob marked as collided, keeping the order of the rest */
+    public void removeCollided() {
+        int w = 0;
+        for(int k = 0; k < types.length; k++) {
+            int from = start[k], to = end(k);
+            start[k] = w;
+            for(int i = from; i < to; i++) {
+                if(!collided[i]) move(i, w++);
+            }
+        }
+        size = w;
+    }
+
+    /** Removes every blob */
+    public void clear() {
+        Arrays.fill(start, 0);
+        size = 0;
+    }
+
+    /** Moves every blob one step, a behavior at a time */
+    public void step() {
+        stepBouncers(start[0], end(0));
+        stepWanderers(start[1], end(1));
+        stepPulsars(start[2], end(2));
+        stepTeleporters(start[3], end(3));
+    }
+
+    /** Helper Method: Bouncer.step for blobs from to to, moving and bouncing off the walls, accounting for radius */
+    private void stepBouncers(int from, int to) {
+        for(int i = from; i < to; i++) {
+            double ri = r[i];
+            double xi = x[i] + dx[i], yi = y[i] + dy[i];
+            if(xi > xmax - ri) { xi = xmax - ri; dx[i] = -dx[i]; }
+            else if(xi < ri) { xi = ri; dx[i] = -dx[i]; }
+            if(yi > ymax - ri) { yi = ymax - ri; dy[i] = -dy[i]; }
+            else if(yi < ri) { yi = ri; dy[i] = -dy[i]; }
+            x[i] = xi; y[i] = yi;
+        }
+    }
+
+    /** Helper Method: Wanderer.step for blobs from to to, choosing a new step between -1 and +1 in each of x and y */
+    private void stepWanderers(int from, int to) {
+        for(int i = from; i < to; i++) {
+            dx[i] = 2 * (random.nextDouble() - 0.5);
+            dy[i] = 2 * (random.nextDouble() - 0.5);
+            x[i] += dx[i];
+            y[i] += dy[i];
+        }
+    }
+
+    /** Helper Method: WanderingPulsar.step for blobs from to to, wandering and then growing within radius 1 to 10 */
+    private void stepPulsars(int from, int to) {
+        stepWanderers(from, to);
+        for(int i = from; i < to; i++) {
+            r[i] += dr[i];
+            if(r[i] < 1 || r[i] > 10) {
+                dr[i] = -dr[i];
+                r[i] += dr[i];
+            }
+        }
+    }
+
+    /** Helper Method: Teleporter.step for blobs from to to, jumping anywhere in the area */
+    private void stepTeleporters(int from, int to) {
+        for(int i = from; i < to; i++) {
+            x[i] = random.nextDouble() * xmax;
+            y[i] = random.nextDouble() * ymax;
+        }
+    }
+
+    /** Helper Method: index just past the last blob of behavior k */
+    private int end(int k) {
+        return k + 1 < types.length ? start[k + 1] : size;
+    }
+
+    /** Helper Method: index of the behavior in types */
+    private static int kind(char type) {
+        for(int k = 0; k < types.length; k++) {
+            if(types[k] == type) return k;
+        }
+        throw new IllegalArgumentException("Unknown blob type " + type);
+    }
+
+    /** Helper Method: copies the blob at index from over the one at index to */
+    private void move(int from, int to) {
+        if(from == to) return;
+        x[to] = x[from]; y[to] = y[from];
+        dx[to] = dx[from]; dy[to] = dy[from];
+        r[to] = r[from]; dr[to] = dr[from];
+        collided[to] = collided[from];
+    }
+
+    /** Helper Method: doubles the room in the arrays */
+    private void grow() {
+        int capacity = 2 * x.length;
+        x = Arrays.copyOf(x, capacity); y = Arrays.copyOf(y, capacity);
+        dx = Arrays.copyOf(dx, capacity); dy = Arrays.copyOf(dy, capacity);
+        r = Arrays.copyOf(r, capacity); dr = Arrays.copyOf(dr, capacity);
+        collided = Arrays.copyOf(collided, capacity);
+    }
+
+    /**
+     * NESTED CLASS
+     * --------------------
+     */
+
+    /** The blob at an index of the store, as a Point2D */
+    public class View implements Point2D {
+        private final int index;
+
+        private View(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public double getX() {
+            return x[index];
+        }
+
+        public double getY() {
+            return y[index];
+        }
+
+        public double getR() {
+            return r[index];
+        }
+
+        public void setX(double newX) {
+            x[index] = newX;
+        }
+
+        public void setY(double newY) {
+            y[index] = newY;
+        }
+    }
+}
@@ -1,8 +1,13 @@
 /**
  * CollisionGUI
- * A GUI that can create blobs (wanderers and bouncers) on screen, check when they collide with one another, and
+ * A GUI that can create blobs (wanderers, bouncers, pulsars and teleporters) on screen, check when they collide with one another, and
  * change the color of those blobs to red or delete them
  *
+ * The blobs step on their own thread, through a SimulationLoop, and the event thread only draws the snapshots it
+ * publishes, so a screen full of blobs steps at a steady rate however long drawing them takes. The blobs themselves
+ * are kept in a BlobStore, arrays of coordinates rather than a list of Blob objects, so stepping and checking for
+ * collisions runs down arrays instead of from object to object
+ *
  * @name -> Ethan Chen
  * @date -> October 7, 2020
  * @class -> CS 10, Fall 2020, Pierson
@@ -12,8 +17,6 @@ import java.awt.*;
 
 import javax.swing.*;
 
-import java.util.List;
-import java.util.ArrayList;
 
 /**
  * Using a quadtree for collision detection
@@ -22,7 +25,7 @@ import java.util.ArrayList;
  * @author CBK, Spring 2016, updated for blobs
  * @author CBK, Fall 2016, using generic PointQuadtree
  */
-public class CollisionGUI extends DrawingGUI {
+public class CollisionGUI extends DrawingGUI implements SimulationLoop.Simulation<CollisionGUI.Scene> {
 
     /**
      * VARIABLES
@@ -31,11 +34,11 @@ public class CollisionGUI extends DrawingGUI {
 
     private static final int width=800, height=600;		// size of the universe
 
-    private List<Blob> blobs;							// all the blobs
-    private List<Blob> colliders;						// the blobs who collided at this step
+    private BlobStore blobs;							// all the blobs, marked if they have collided (simulation thread only, once it runs)
     private char blobType = 'b';						// what type of blob to create
     private char collisionHandler = 'c';				// when there's a collision, 'c'olor them, or 'd'estroy them
-    private int delay = 100;							// timer control
+    private int delay = 100;							// time per step (milliseconds)
+    private SimulationLoop<Scene> simulation;			// steps the blobs and hands what to draw to the event thread
 
     /**
      * CONSTRUCTOR
@@ -45,11 +48,12 @@ public class CollisionGUI extends DrawingGUI {
     public CollisionGUI() {
         super("super-collider", width, height);
 
-        blobs = new ArrayList<Blob>(); // initializes as empty ArrayLists
-        colliders = new ArrayList<Blob>();
+        blobs = new BlobStore(width, height); // initializes as empty
+        setDirtyTracking(true); // only the blobs' old and new spots are drawn again each step
 
-        // Timer drives the animation.
-        startTimer();
+        // The simulation loop drives the animation.
+        simulation = new SimulationLoop<Scene>(this, delay);
+        simulation.start();
     }
 
     /**
@@ -57,125 +61,177 @@ public class CollisionGUI extends DrawingGUI {
      * --------------------
      */
 
-    /** Adds an blob of the current blobType at the location */
-    private void add(int x, int y) {
-        if (blobType=='b') { // bouncer
-            blobs.add(new Bouncer(x,y,width,height));
+    /** Adds an blob of the given type at the location (on the simulation thread, through post) */
+    private void add(char type, int x, int y) {
+        try {
+            blobs.add(type, x, y); // 'b'ouncer, 'w'anderer, 'p'ulsar or 't'eleporter
         }
-        else if (blobType=='w') { // wanderer
-            blobs.add(new Wanderer(x,y));
+        catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
         }
-        else {
-            System.err.println("Unknown blob type "+blobType);
+    }
+
+    /** Helper Method: marks the area of each circle in the scene as needing to be drawn again */
+    private void markDirty(float[] xs, float[] ys, float[] rs) {
+        for (int i=0; i<xs.length; i++) {
+            int r = (int) Math.ceil(rs[i]);
+            markDirty((int) xs[i] - r - 1, (int) ys[i] - r - 1, 2 * r + 3, 2 * r + 3);
         }
     }
 
     /** DrawingGUI method, here creating a new blob */
     public void handleMousePress(int x, int y) {
-        add(x,y); // adds a blob at the location of the mouse press
-        repaint();
+        char type = blobType;
+        simulation.post(() -> add(type, x, y)); // adds a blob at the location of the mouse press
     }
 
     /** DrawingGUI method */
     public void handleKeyPress(char k) {
         if (k == 'f') { // faster
             if (delay>1) delay /= 2;
-            setTimerDelay(delay);
+            simulation.setPeriod(delay);
             System.out.println("delay:"+delay);
         }
         else if (k == 's') { // slower
             delay *= 2;
-            setTimerDelay(delay);
+            simulation.setPeriod(delay);
             System.out.println("delay:"+delay);
         }
         else if (k == 'r') { // add some new blobs at random positions
-            for (int i=0; i<10; i++) {
-                add((int)(width*Math.random()), (int)(height*Math.random()));
-                repaint();
-            }
+            char type = blobType;
+            simulation.post(() -> {
+                for (int i=0; i<10; i++) {
+                    add(type, (int)(width*Math.random()), (int)(height*Math.random()));
+                }
+            });
         }
         else if (k == 'c' || k == 'd') { // control how collisions are handled
-            collisionHandler = k;
+            simulation.post(() -> collisionHandler = k);
             System.out.println("collision:"+k);
         }
+        else if (k == 'i') { // how the simulation is keeping up
+            System.out.println(simulation);
+        }
         else { // set the type for new blobs
             blobType = k;
         }
     }
 
-    /** DrawingGUI method, here drawing all the blobs and then re-drawing the colliders in red */
+    /** DrawingGUI method, here drawing all the blobs, the colliders in red, as of the last snapshot shown */
     public void draw(Graphics g) {
-        for(Blob blob : blobs) { // draw all of the blobs in existence
-            blob.draw(g);
-        }
-        for(Blob blob : colliders) { // change the color to red and draw all the blobs that have previously collided
-            g.setColor(Color.red);
-            blob.draw(g);
-        }
+        Scene scene = simulation.getShown();
+        if (scene == null) return;
+        scene.draw(g);
     }
 
-    /** Sets colliders to include all blobs in contact with another blob */
+    /** Marks as collided all blobs in contact with another blob */
     private void findColliders() {
 
-        // Create the tree, set first blob as tree head
-        PointQuadtree<Blob> blobTree = new PointQuadtree<Blob>(blobs.get(0), 0, 0, width, height);
-        for(Blob blob : blobs) {
-            if(!blob.equals(blobs.get(0))) { // adds every blob that's not the first blob to the tree
-                blobTree.insert(blob);
-            }
-        }
+        // Build a balanced tree of all the blobs at once (big ones split across threads)
+        PointQuadtree<BlobStore.View> blobTree = PointQuadtree.build(blobs.views(), 0, 0, width, height, true);
         // For each blob, see if anybody else collided with it
-        for(Blob blob : blobs) {
-            findCollisions(blobTree, blob); // run method on every blob
+        for (int i=0; i<blobs.size(); i++) {
+            findCollisions(blobTree, i); // run method on every blob
         }
     }
 
-    /** Recursive helper method that finds any blobs in blobTree that collide with "blob" and adds them to colliders */
-    private void findCollisions(PointQuadtree<Blob> blobTree, Blob blob) {
-        int blobX = (int) blob.getX(); // x, y, and radius of blob we are searching for collisions
-        int blobY = (int) blob.getY();
-        int blobR = (int) blob.getR();
+    /** Recursive helper method that finds any blobs in blobTree that collide with blob i and marks them as collided */
+    private void findCollisions(PointQuadtree<BlobStore.View> blobTree, int i) {
+        int blobX = (int) blobs.getX(i); // x, y, and radius of blob we are searching for collisions
+        int blobY = (int) blobs.getY(i);
+        int blobR = (int) blobs.getR(i);
         int x1 = blobTree.getX1(); // boundaries of tree region
         int y1 = blobTree.getY1();
         int x2 = blobTree.getX2();
         int y2 = blobTree.getY2();
-        int x = (int) blobTree.getPoint().getX(); // x, y of blob of current tree
-        int y = (int) blobTree.getPoint().getY();
+        BlobStore.View point = blobTree.getPoint(); // blob of current tree
+        int x = (int) point.getX();
+        int y = (int) point.getY();
 
         if(Geometry.circleIntersectsRectangle(blobX, blobY, 2 * blobR, x1, y1, x2, y2)) { // checks if blob is in the current blob's region
-            if(!blob.equals(blobTree.getPoint())) { // if the blob is not itself - otherwise, all blobs are considered "collided" with themselves
+            if(point.getIndex() != i) { // if the blob is not itself - otherwise, all blobs are considered "collided" with themselves
                 if (Geometry.pointInCircle(x, y, blobX, blobY, 2 * blobR)) { // check to see if they collide
-                    colliders.add(blobTree.getPoint()); // add them to colliders list
+                    blobs.setCollided(point.getIndex()); // mark it as collided
                 }
             }
             if(blobTree.hasChild(1)) { // recurse into each of the child trees
-                findCollisions(blobTree.getChild(1), blob);
+                findCollisions(blobTree.getChild(1), i);
             } if(blobTree.hasChild(2)) {
-                findCollisions(blobTree.getChild(2), blob);
+                findCollisions(blobTree.getChild(2), i);
             } if(blobTree.hasChild(3)) {
-                findCollisions(blobTree.getChild(3), blob);
+                findCollisions(blobTree.getChild(3), i);
             } if(blobTree.hasChild(4)) {
-                findCollisions(blobTree.getChild(4), blob);
+                findCollisions(blobTree.getChild(4), i);
             }
         }
     }
 
-    /** DrawingGUI method, here moving all the blobs and checking for collisions */
-    public void handleTimer() {
-        // Ask all the blobs to move themselves.
-        for (Blob blob : blobs) {
-            blob.step();
-        }
+    /** Simulation method, here moving all the blobs and checking for collisions (simulation thread) */
+    public void step() {
+        // Move all the blobs, a behavior at a time
+        blobs.step();
         // Check for collisions
         if (blobs.size() > 0) {
             findColliders();
             if (collisionHandler=='d') {
-                blobs.removeAll(colliders);
-                colliders.clear();
+                blobs.removeCollided();
+            }
+        }
+    }
+
+    /** Simulation method, here copying where the blobs and colliders are (simulation thread) */
+    public Scene snapshot() {
+        return new Scene(blobs);
+    }
+
+    /** Simulation method, here marking where the blobs were and where they are now, and updating the drawing */
+    public void show(Scene previous, Scene next) {
+        if (previous != null) {
+            markDirty(previous.xs, previous.ys, previous.rs);
+            markDirty(previous.colliderXs, previous.colliderYs, previous.colliderRs);
+        }
+        markDirty(next.xs, next.ys, next.rs);
+        markDirty(next.colliderXs, next.colliderYs, next.colliderRs);
+        repaintDirty();
+    }
+
+    /**
+     * NESTED CLASS
+     * --------------------
+     */
+
+    /** An immutable copy of the blobs and colliders, as of one step, for drawing on the event thread */
+    static class Scene {
+        private final float[] xs, ys, rs;							// the blobs that haven't collided
+        private final float[] colliderXs, colliderYs, colliderRs;	// the ones that have, drawn in red
+
+        Scene(BlobStore blobs) {
+            int n = blobs.size(), hit = 0;
+            for (int i=0; i<n; i++) {
+                if (blobs.isCollided(i)) hit++;
+            }
+            xs = new float[n - hit]; ys = new float[xs.length]; rs = new float[xs.length];
+            colliderXs = new float[hit]; colliderYs = new float[hit]; colliderRs = new float[hit];
+            for (int i=0, b=0, c=0; i<n; i++) { // the colliders are drawn red instead of black
+                float x = (float) blobs.getX(i), y = (float) blobs.getY(i), r = (float) blobs.getR(i);
+                if (blobs.isCollided(i)) { colliderXs[c] = x; colliderYs[c] = y; colliderRs[c++] = r; }
+                else { xs[b] = x; ys[b] = y; rs[b++] = r; }
+            }
+        }
+
+        /** Draws the blobs as Blob does, and the colliders in red */
+        void draw(Graphics g) {
+            fill(g, xs, ys, rs);
+            g.setColor(Color.red);
+            fill(g, colliderXs, colliderYs, colliderRs);
+        }
+
+        /** Helper Method: fills each circle */
+        private static void fill(Graphics g, float[] xs, float[] ys, float[] rs) {
+            for (int i=0; i<xs.length; i++) {
+                g.fillOval((int)(xs[i]-rs[i]), (int)(ys[i]-rs[i]), (int)(2*rs[i]), (int)(2*rs[i]));
             }
         }
-        // Now update the drawing
-        repaint();
     }
 
     /**
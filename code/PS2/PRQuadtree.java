@@ -0,0 +1,256 @@
+/**
+ * PRQuadtree
+ * A point-region quadtree: like PointQuadtree it stores points in a rectangle and finds those in a circle, but its
+ * nodes split at the middle of their rectangles rather than at a point, and only the leaves hold points, up to a
+ * bucket of capacity each (kept as arrays of coordinates). A leaf with more than capacity points splits into four.
+ *
+ * With buckets of 16 to 64 points there are far fewer nodes than points (PointQuadtree has one per point), and a query
+ * reaching a leaf tests its points in one loop down two double arrays instead of one node at a time. Splitting at the
+ * middle also means the shape doesn't depend on the order points come in, and no point is ever left out for tying
+ * with another.
+ *
+ * @class -> CS 10, Fall 2020, Pierson
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PRQuadtree<E extends Point2D> {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    public static final int defaultCapacity = 32;	// points per leaf, unless given
+    private static final int maxDepth = 32;			// deepest a leaf splits, so piles of points at one spot stop splitting
+
+    private final double x1, y1;					// upper-left corner of the region
+    private final double x2, y2;					// bottom-right corner of the region
+    private final int capacity;						// most points a leaf holds before splitting (unless at maxDepth)
+    private final int depth;						// levels above this node
+
+    private double[] xs, ys;						// coordinates of the leaf's points, null once split
+    private Object[] points;						// the leaf's points themselves
+    private int count;								// points in the leaf
+    private int size;								// points in the tree (including its descendants)
+    private PRQuadtree<E> q1, q2, q3, q4;			// children, null while a leaf
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    /** Initializes an empty quadtree over the rectangle, with leaves of up to capacity points */
+    public PRQuadtree(int x1, int y1, int x2, int y2, int capacity) {
+        this(x1, y1, x2, y2, capacity, 0);
+    }
+
+    /** Initializes an empty quadtree over the rectangle, with leaves of up to defaultCapacity points */
+    public PRQuadtree(int x1, int y1, int x2, int y2) {
+        this(x1, y1, x2, y2, defaultCapacity);
+    }
+
+    /** Helper constructor for the children made by a split */
+    private PRQuadtree(double x1, double y1, double x2, double y2, int capacity, int depth) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Leaf capacity must be positive, not " + capacity);
+        }
+        this.x1 = x1; this.y1 = y1; this.x2 = x2; this.y2 = y2;
+        this.capacity = capacity;
+        this.depth = depth;
+        xs = new double[capacity];
+        ys = new double[capacity];
+        points = new Object[capacity];
+    }
+
+    /**
+     * GETTERS
+     * --------------------
+     */
+
+    public double getX1() {
+        return x1;
+    }
+
+    public double getY1() {
+        return y1;
+    }
+
+    public double getX2() {
+        return x2;
+    }
+
+    public double getY2() {
+        return y2;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isLeaf() {
+        return xs != null;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /**
+     * Returns the child (if any) at the given quadrant, 1-4, numbered as in PointQuadtree
+     * @param quadrant	1 through 4
+     */
+    public PRQuadtree<E> getChild(int quadrant) {
+        if (quadrant==1) return q1;
+        if (quadrant==2) return q2;
+        if (quadrant==3) return q3;
+        if (quadrant==4) return q4;
+        return null;
+    }
+
+    /** Inserts the point into the tree; it has to be inside the tree's rectangle */
+    public void insert(E p) {
+        double x = p.getX(), y = p.getY();
+        if (!(x >= x1 && x <= x2 && y >= y1 && y <= y2)) {
+            throw new IllegalArgumentException("Point (" + x + ", " + y + ") is outside the quadtree's rectangle");
+        }
+        PRQuadtree<E> node = this;
+        while (!node.isLeaf()) { // go down to the leaf whose rectangle the point is in
+            node.size++;
+            node = node.childFor(x, y);
+        }
+        node.add(p, x, y);
+    }
+
+    /** Helper method for insert(), adding the point to this leaf, and splitting it if it is now over capacity */
+    private void add(Object p, double x, double y) {
+        if (count == xs.length) { // full: split, or if already as deep as allowed, just make room
+            if (depth < maxDepth) {
+                split();
+                size++;
+                childFor(x, y).add(p, x, y);
+                return;
+            }
+            xs = Arrays.copyOf(xs, 2 * count);
+            ys = Arrays.copyOf(ys, 2 * count);
+            points = Arrays.copyOf(points, 2 * count);
+        }
+        xs[count] = x; ys[count] = y; points[count] = p;
+        count++;
+        size++;
+    }
+
+    /** Helper method for add(), turning this leaf into a node with four leaves, and moving its points down into them */
+    private void split() {
+        double mx = (x1 + x2) / 2, my = (y1 + y2) / 2;
+        q1 = new PRQuadtree<E>(mx, y1, x2, my, capacity, depth + 1);
+        q2 = new PRQuadtree<E>(x1, y1, mx, my, capacity, depth + 1);
+        q3 = new PRQuadtree<E>(x1, my, mx, y2, capacity, depth + 1);
+        q4 = new PRQuadtree<E>(mx, my, x2, y2, capacity, depth + 1);
+        double[] oldXs = xs, oldYs = ys;
+        Object[] oldPoints = points;
+        xs = null; ys = null; points = null;
+        for (int i = 0; i < count; i++) {
+            childFor(oldXs[i], oldYs[i]).add(oldPoints[i], oldXs[i], oldYs[i]);
+        }
+        count = 0;
+    }
+
+    /** Helper method, the child whose rectangle (x, y) is in: those on a middle line go right and down */
+    private PRQuadtree<E> childFor(double x, double y) {
+        double mx = (x1 + x2) / 2, my = (y1 + y2) / 2;
+        if (y < my) return x >= mx ? q1 : q2;
+        return x < mx ? q3 : q4;
+    }
+
+    /** Finds the number of points in the quadtree (including its descendants) */
+    public int size() {
+        return size;
+    }
+
+    /** Builds a list of all the points in the quadtree (including its descendants) */
+    public List<E> allPoints() {
+        ArrayList<E> pointList = new ArrayList<E>(size);
+        getAllPoints(pointList);
+        return pointList;
+    }
+
+    /** Helper method for allPoints(), adds points in quadTree into list */
+    @SuppressWarnings("unchecked")
+    private void getAllPoints(List<E> list) {
+        if (isLeaf()) {
+            for (int i = 0; i < count; i++) {
+                list.add((E) points[i]);
+            }
+            return;
+        }
+        q1.getAllPoints(list);
+        q2.getAllPoints(list);
+        q3.getAllPoints(list);
+        q4.getAllPoints(list);
+    }
+
+    /**
+     * Uses the quadtree to find all points within the circle
+     * @param cx	circle center x
+     * @param cy  	circle center y
+     * @param cr  	circle radius
+     * @return    	the points in the circle (and the qt's rectangle)
+     */
+    public List<E> findInCircle(double cx, double cy, double cr) {
+        ArrayList<E> pointsInCircle = new ArrayList<E>();
+        findPointsInCircle(cx, cy, cr, pointsInCircle);
+        return pointsInCircle;
+    }
+
+    /**
+     * Helper method for findInCircle(), adds points in circle to list; a leaf's points are tested in one loop,
+     * with the same test as Geometry.pointInCircle
+     */
+    @SuppressWarnings("unchecked")
+    private void findPointsInCircle(double cx, double cy, double cr, List<E> list) {
+        if (size == 0 || !Geometry.circleIntersectsRectangle(cx, cy, cr, x1, y1, x2, y2)) return;
+        if (isLeaf()) {
+            double r2 = cr * cr;
+            for (int i = 0; i < count; i++) {
+                double dx = xs[i] - cx, dy = ys[i] - cy;
+                if (dx * dx + dy * dy <= r2) list.add((E) points[i]);
+            }
+            return;
+        }
+        q1.findPointsInCircle(cx, cy, cr, list);
+        q2.findPointsInCircle(cx, cy, cr, list);
+        q3.findPointsInCircle(cx, cy, cr, list);
+        q4.findPointsInCircle(cx, cy, cr, list);
+    }
+
+    /** Finds the number of nodes in the quadtree (including its descendants), leaves and all */
+    public int nodeCount() {
+        if (isLeaf()) return 1;
+        return 1 + q1.nodeCount() + q2.nodeCount() + q3.nodeCount() + q4.nodeCount();
+    }
+
+    /**
+     * RUNNER
+     * --------------------
+     */
+
+    public static void main(String[] args) {
+        PRQuadtree<Dot> tree = new PRQuadtree<Dot>(0, 0, 1000, 1000, 2);
+        tree.insert(new Dot(500, 500)); // adding points, as in PointQuadtree's test
+        tree.insert(new Dot(130, 670));
+        tree.insert(new Dot(120, 800));
+        tree.insert(new Dot(280, 680));
+        tree.insert(new Dot(680, 330));
+        tree.insert(new Dot(120, 120));
+        tree.insert(new Dot(680, 970));
+        System.out.println(tree.size() + " points in " + tree.nodeCount() + " nodes"); // testing size method
+        for(Dot p : tree.allPoints()) { // testing allPoints method
+            System.out.println(p.getX() + " " + p.getY());
+        }
+        System.out.println(tree.findInCircle(130, 700, 50)); // testing findInCircle method
+    }
+}
@@ -10,6 +10,9 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A point quadtree: stores an element at a 2D position, 
@@ -19,6 +22,10 @@ import java.util.List;
  * @author CBK, Spring 2016, explicit rectangle
  * @author CBK, Fall 2016, generic with Point2D interface
  *
+ * Inserting points one at a time makes a tree shaped by the order they come in, which for sorted or clustered points
+ * is a long chain. build() instead makes a balanced tree from all the points at once: each node's point is the median
+ * of its points in x (or y, alternating by level), so no child has more than half of its parent's points and the
+ * depth is at most log2 n + 1.
  */
 public class PointQuadtree<E extends Point2D> {
 
@@ -32,6 +39,8 @@ public class PointQuadtree<E extends Point2D> {
     private int x2, y2;							// bottom-right corner of the region
     private PointQuadtree<E> q1, q2, q3, q4;	// children
 
+    private static final int parallelCutoff = 4096;	// fewest points worth building a subtree in a task of its own
+
     /**
      * CONSTRUCTOR
      * --------------------
@@ -128,6 +137,126 @@ public class PointQuadtree<E extends Point2D> {
         }
     }
 
+    /**
+     * Builds a balanced quadtree of the points in the rectangle, as insert would have if they had come in the right order.
+     * As with insert, a point tied in x or y with a point above it in the tree is left out. Returns null if there are
+     * no points.
+     * @param parallel	whether to build big subtrees on separate threads (fork/join)
+     */
+    public static <E extends Point2D> PointQuadtree<E> build(List<E> points, int x1, int y1, int x2, int y2, boolean parallel) {
+        Point2D[] nodes = points.toArray(new Point2D[0]);
+        Point2D[] scratch = new Point2D[nodes.length]; // sorting space for splitting the points into quadrants
+        if (parallel && nodes.length >= parallelCutoff) {
+            return ForkJoinPool.commonPool().invoke(new Builder<E>(nodes, scratch, 0, nodes.length, x1, y1, x2, y2, 0));
+        }
+        return build(nodes, scratch, 0, nodes.length, x1, y1, x2, y2, 0, false);
+    }
+
+    /** Builds a balanced quadtree of the points in the rectangle, on this thread (see above) */
+    public static <E extends Point2D> PointQuadtree<E> build(List<E> points, int x1, int y1, int x2, int y2) {
+        return build(points, x1, y1, x2, y2, false);
+    }
+
+    /**
+     * Helper method for build(), making the tree of nodes[from..to) (reordering them, and using the same part of scratch):
+     * the median point is the root, and the rest are split into the four quadrants around it and built into its children
+     * @param depth		levels above this node, to alternate splitting at the median x and the median y
+     * @param parallel	whether this is running in a Builder task, and so may fork more
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Point2D> PointQuadtree<E> build(Point2D[] nodes, Point2D[] scratch, int from, int to,
+                                                              int x1, int y1, int x2, int y2, int depth, boolean parallel) {
+        if (from >= to) return null;
+        boolean byX = depth % 2 == 0;
+        int mid = (from + to) >>> 1;
+        select(nodes, from, to, mid, byX);
+        Point2D root = nodes[mid];
+        PointQuadtree<E> tree = new PointQuadtree<E>((E) root, x1, y1, x2, y2);
+        int px = (int) root.getX(), py = (int) root.getY(); // corners of the children, as insert makes them
+
+        // Split the rest into quadrants 1-4, in that order, leaving out any tied with the root
+        int[] ends = splitQuadrants(nodes, scratch, from, to, mid, root.getX(), root.getY());
+        int s1 = from + 1, s2 = ends[0], s3 = ends[1], s4 = ends[2], s5 = ends[3];
+
+        if (parallel && to - from >= parallelCutoff) { // big enough to build the children at the same time
+            Builder<E> b1 = new Builder<E>(nodes, scratch, s1, s2, px, y1, x2, py, depth + 1);
+            Builder<E> b2 = new Builder<E>(nodes, scratch, s2, s3, x1, y1, px, py, depth + 1);
+            Builder<E> b3 = new Builder<E>(nodes, scratch, s3, s4, x1, py, px, y2, depth + 1);
+            b1.fork(); b2.fork(); b3.fork();
+            tree.q4 = build(nodes, scratch, s4, s5, px, py, x2, y2, depth + 1, true);
+            tree.q3 = b3.join(); tree.q2 = b2.join(); tree.q1 = b1.join();
+        }
+        else {
+            tree.q1 = build(nodes, scratch, s1, s2, px, y1, x2, py, depth + 1, parallel);
+            tree.q2 = build(nodes, scratch, s2, s3, x1, y1, px, py, depth + 1, parallel);
+            tree.q3 = build(nodes, scratch, s3, s4, x1, py, px, y2, depth + 1, parallel);
+            tree.q4 = build(nodes, scratch, s4, s5, px, py, x2, y2, depth + 1, parallel);
+        }
+        return tree;
+    }
+
+    /**
+     * Helper method for build(), reordering nodes[from..to), except the root at index skip, into nodes[from+1..to) as the
+     * points of quadrants 1, 2, 3 and 4 around (px, py) with the same tests as insert, followed by the points in none of
+     * them, and returning where each quadrant's points end (the order within each quadrant is kept)
+     */
+    private static int[] splitQuadrants(Point2D[] nodes, Point2D[] scratch, int from, int to, int skip, double px, double py) {
+        int[] counts = new int[5]; // quadrants 1-4, then the left out points
+        for (int i = from; i < to; i++) {
+            if (i != skip) counts[quadrant(nodes[i], px, py)]++;
+        }
+        int[] next = new int[5];
+        next[0] = from + 1;
+        for (int q = 1; q < 5; q++) {
+            next[q] = next[q - 1] + counts[q - 1];
+        }
+        int[] ends = {next[1], next[2], next[3], next[4]};
+        for (int i = from; i < to; i++) {
+            if (i != skip) scratch[next[quadrant(nodes[i], px, py)]++] = nodes[i];
+        }
+        System.arraycopy(scratch, from + 1, nodes, from + 1, to - from - 1);
+        return ends;
+    }
+
+    /** Helper method for splitQuadrants(), the quadrant (0-3 for 1-4) the point goes in, or 4 if none, as in insert */
+    private static int quadrant(Point2D p, double px, double py) {
+        double x = p.getX(), y = p.getY();
+        if (x > px && y < py) return 0;
+        if (x < px && y < py) return 1;
+        if (x < px && y > py) return 2;
+        if (x > px && y > py) return 3;
+        return 4;
+    }
+
+    /**
+     * Helper method for build(), reordering nodes[from..to) so the point at k is the one that would be there sorted by
+     * x (or y), with none after it smaller and none before it bigger (quickselect, with random pivots so that no order
+     * of points, such as already sorted, makes it quadratic)
+     */
+    private static void select(Point2D[] nodes, int from, int to, int k, boolean byX) {
+        int lo = from, hi = to - 1;
+        while (lo < hi) {
+            double pivot = key(nodes[ThreadLocalRandom.current().nextInt(lo, hi + 1)], byX);
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (key(nodes[i], byX) < pivot) i++;
+                while (key(nodes[j], byX) > pivot) j--;
+                if (i <= j) {
+                    Point2D t = nodes[i]; nodes[i] = nodes[j]; nodes[j] = t;
+                    i++; j--;
+                }
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    /** Helper method for select(), the coordinate being sorted on */
+    private static double key(Point2D p, boolean byX) {
+        return byX ? p.getX() : p.getY();
+    }
+
     /** Finds the number of points in the quadtree (including its descendants) */
     public int size() {
         int size = 1;
@@ -195,6 +324,31 @@ public class PointQuadtree<E extends Point2D> {
         }
     }
 
+    /**
+     * NESTED CLASS
+     * --------------------
+     */
+
+    /** A fork/join task building the subtree of a part of the points, for build(..., true) */
+    private static class Builder<E extends Point2D> extends RecursiveTask<PointQuadtree<E>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Point2D[] nodes, scratch;
+        private final int from, to, x1, y1, x2, y2, depth;
+
+        Builder(Point2D[] nodes, Point2D[] scratch, int from, int to, int x1, int y1, int x2, int y2, int depth) {
+            this.nodes = nodes; this.scratch = scratch;
+            this.from = from; this.to = to;
+            this.x1 = x1; this.y1 = y1; this.x2 = x2; this.y2 = y2;
+            this.depth = depth;
+        }
+
+        @Override
+        protected PointQuadtree<E> compute() {
+            return build(nodes, scratch, from, to, x1, y1, x2, y2, depth, true);
+        }
+    }
+
     /**
      * RUNNER
      * --------------------
@@ -0,0 +1,203 @@
+/**
+ * SimulationLoop
+ * Alternative to DrawingGUI's Swing timer for animations: the simulation steps on a thread of its own at a fixed
+ * timestep, and the event thread only draws. After each round of steps the simulation publishes an immutable
+ * snapshot of its state through an AtomicReference (no locks, and the simulation never waits on drawing); a Swing
+ * timer at about the display's refresh rate hands the newest snapshot to the GUI whenever there is a new one.
+ *
+ * If stepping falls behind, the loop runs extra steps to catch up (so the simulation keeps its pace), but at most
+ * maxCatchUp in a row; beyond that the late steps are dropped and counted instead of snowballing.
+ *
+ * Anything that changes the simulation from the event thread (mouse presses, keys) must be posted with post(), which
+ * runs it on the simulation thread between steps.
+ *
+ * @class -> CS 10, Fall 2020, Pierson
+ */
+
+import java.awt.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import javax.swing.*;
+
+public class SimulationLoop<S> {
+
+    /**
+     * VARIABLES
+     * --------------------
+     */
+
+    private static final int maxCatchUp = 5;                    // most steps run back to back to catch up
+
+    private final Simulation<S> simulation;                     // what is being stepped and shown
+    private volatile long period;                               // nanoseconds per step
+    private final AtomicReference<S> latest = new AtomicReference<S>();    // newest snapshot, from the simulation thread
+    private S shown;                                            // snapshot last handed to show (event thread only)
+    private final ConcurrentLinkedQueue<Runnable> posted = new ConcurrentLinkedQueue<Runnable>(); // changes to run between steps
+
+    private Thread thread;                                      // the simulation thread, while running
+    private volatile boolean running;
+    private Timer renderTimer;                                  // fires on the event thread at about the display rate
+
+    private final AtomicLong steps = new AtomicLong();          // steps run
+    private final AtomicLong dropped = new AtomicLong();        // steps skipped for being too far behind
+    private final AtomicLong snapshots = new AtomicLong();      // snapshots published
+    private long rendered;                                      // snapshots shown (event thread only)
+
+    /**
+     * CONSTRUCTORS
+     * --------------------
+     */
+
+    /**
+     * @param simulation    what to step and show
+     * @param periodMillis  time per step, e.g. 1000.0 / 60 for 60 steps a second
+     */
+    public SimulationLoop(Simulation<S> simulation, double periodMillis) {
+        this.simulation = simulation;
+        setPeriod(periodMillis);
+    }
+
+    /**
+     * GETTERS AND SETTERS
+     * --------------------
+     */
+
+    /** Time per step, in milliseconds */
+    public double getPeriod() {
+        return period / 1e6;
+    }
+
+    public void setPeriod(double periodMillis) {
+        if(!(periodMillis > 0)) {
+            throw new IllegalArgumentException("Step period must be positive, not " + periodMillis);
+        }
+        this.period = (long) (periodMillis * 1e6);
+    }
+
+    /** The snapshot last handed to show, for drawing (event thread only) */
+    public S getShown() {
+        return shown;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * METHODS
+     * --------------------
+     */
+
+    /** Starts stepping (on a new thread) and showing (on the event thread) */
+    public synchronized void start() {
+        if(running) return;
+        running = true;
+        latest.set(simulation.snapshot()); // something to draw before the first step
+        thread = new Thread(this::run, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+        renderTimer = new Timer(Math.max(1, 1000 / refreshRate()), e -> render());
+        renderTimer.start();
+    }
+
+    /** Stops stepping and showing, waiting for the step in progress to finish */
+    public synchronized void stop() {
+        if(!running) return;
+        running = false;
+        renderTimer.stop();
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /** Runs the change on the simulation thread before its next step (right away if the loop isn't running) */
+    public void post(Runnable change) {
+        if(!running) {
+            change.run();
+            return;
+        }
+        posted.add(change);
+    }
+
+    /** Helper Method: the simulation thread's loop, stepping on a fixed schedule and publishing a snapshot after */
+    private void run() {
+        long next = System.nanoTime();
+        while(running) {
+            for(Runnable change = posted.poll(); change != null; change = posted.poll()) {
+                change.run();
+            }
+            long now = System.nanoTime();
+            if(now < next) {
+                LockSupport.parkNanos(next - now);
+                continue; // check for posted changes (and stop) again before stepping
+            }
+            int caughtUp = 0;
+            while(now >= next && caughtUp < maxCatchUp) {
+                simulation.step();
+                steps.incrementAndGet();
+                next += period;
+                caughtUp++;
+            }
+            if(now >= next) { // still behind after catching up as much as allowed, so give up on the rest
+                long late = (now - next) / period + 1;
+                dropped.addAndGet(late);
+                next += late * period;
+            }
+            latest.set(simulation.snapshot());
+            snapshots.incrementAndGet();
+        }
+        for(Runnable change = posted.poll(); change != null; change = posted.poll()) { // nothing posted gets lost
+            change.run();
+        }
+    }
+
+    /** Helper Method: on the event thread, hands the newest snapshot to the simulation if it hasn't been shown yet */
+    private void render() {
+        S next = latest.get();
+        if(next == shown) return;
+        S previous = shown;
+        shown = next;
+        rendered++;
+        simulation.show(previous, next);
+    }
+
+    /** Helper Method: the main display's refresh rate, 60 if it can't be told */
+    private static int refreshRate() {
+        try {
+            int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+            return rate > 0 ? rate : 60;
+        } catch(HeadlessException e) {
+            return 60;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("simulation: %d steps (%.1f ms each), %d dropped, %d snapshots, %d shown",
+                steps.get(), getPeriod(), dropped.get(), snapshots.get(), rendered);
+    }
+
+    /**
+     * INTERFACE
+     *
+     * Simulation
+     * Something a SimulationLoop can run: stepped and snapshot on the simulation thread, shown on the event thread
+     */
+
+    public interface Simulation<S> {
+        /** Advances the simulation by one timestep (simulation thread) */
+        void step();
+
+        /** An immutable copy of what there is to draw (simulation thread) */
+        S snapshot();
+
+        /** Shows the next snapshot, e.g. marking what changed since previous (null at first) and repainting (event thread) */
+        void show(S previous, S next);
+    }
+}